@@ -0,0 +1,85 @@
+package com.example.resume.bench;
+
+import akka.util.ByteString;
+import akka.util.ByteStringBuilder;
+
+import com.example.resume.domain.Question;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Realistic inputs for the benchmarks, built from the PDFs bundled with the service.
+ */
+public final class Fixtures {
+
+    private Fixtures() {}
+
+    public static ByteString resource(String name) {
+        try (var in = Fixtures.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) throw new IllegalArgumentException("Missing resource " + name);
+            return ByteString.fromArrayUnsafe(in.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static ByteString resume() {
+        return resource("fake_resume.pdf");
+    }
+
+    public static ByteString applicationForm() {
+        return resource("fake_application_form.pdf");
+    }
+
+    // The bundled resume repeated up to the given size, as a stand-in for large scanned PDFs
+    public static ByteString pdfOfSize(int megabytes) {
+        var unit = resume();
+        var target = megabytes * 1024 * 1024;
+        var builder = new ByteStringBuilder();
+        while (builder.length() < target) builder.append(unit);
+        return builder.result().take(target).compact();
+    }
+
+    // Parsed resume markdown of about the given size, in the shape LlamaIndex returns it
+    public static String resumeMarkdown(int kilobytes) {
+        var section = """
+                ## Experience
+                - Senior software engineer at Example Corp, 2019-2024
+                - Designed event sourced services handling 20k requests per second
+                - Led a team of six engineers, mentoring two juniors
+                ## Education
+                - MSc Computer Science, University of Somewhere, 2015
+                ## Skills
+                - Java, Scala, Akka, Kafka, PostgreSQL, Kubernetes
+                """;
+        var builder = new StringBuilder("# Jane Doe\n");
+        while (builder.length() < kilobytes * 1024) builder.append(section);
+        return builder.toString();
+    }
+
+    public static List<String> fields(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "Field number " + i + ": years of experience with technology " + i).toList();
+    }
+
+    public static List<Question> questions(int count) {
+        return fields(count).stream().map(Question::new).toList();
+    }
+
+    // Gemini reply to a markdown conversion prompt
+    public static String resumeFieldsJson(int count) {
+        return fields(count).stream()
+                .map(field -> '"' + field + '"')
+                .collect(Collectors.joining(",", "{\"fields\":[", "]}"));
+    }
+
+    // Gemini reply to an answers prompt
+    public static String answersJson(int count) {
+        return questions(count).stream()
+                .map(q -> "{\"question\":\"" + q.question() + "\",\"answer\":\"The candidate has five years of experience with it, in production.\"}")
+                .collect(Collectors.joining(",", "{\"answers\":[", "]}"));
+    }
+}
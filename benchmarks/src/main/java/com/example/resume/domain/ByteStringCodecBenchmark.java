@@ -0,0 +1,92 @@
+package com.example.resume.domain;
+
+import akka.util.ByteString;
+import com.example.resume.bench.Fixtures;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ByteString JSON codec of the workflow state: the Base64 String based codec it replaced vs the streaming one.
+ * Run with {@code -prof gc} to compare the allocation rate per operation.
+ * <p>
+ * The setup fails if the two codecs are not wire compatible in both directions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ByteStringCodecBenchmark {
+
+    // Codec in use before the streaming one, kept to compare against
+    public static class LegacySerializer extends JsonSerializer<ByteString> {
+        @Override
+        public void serialize(ByteString value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeString(Base64.getEncoder().encodeToString(value.toArray()));
+        }
+    }
+
+    public static class LegacyDeserializer extends JsonDeserializer<ByteString> {
+        @Override
+        public ByteString deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return ByteString.fromArray(Base64.getDecoder().decode(p.getValueAsString()));
+        }
+    }
+
+    public record Legacy(
+            @JsonSerialize(using = LegacySerializer.class)
+            @JsonDeserialize(using = LegacyDeserializer.class)
+            ByteString bytes) {}
+
+    public record Streaming(
+            @JsonSerialize(using = ByteStringSerializer.class)
+            @JsonDeserialize(using = ByteStringDeserializer.class)
+            ByteString bytes) {}
+
+    @Param({"1", "5", "20"})
+    public int megabytes;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ByteString pdf;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws IOException {
+        pdf = Fixtures.pdfOfSize(megabytes);
+        json = mapper.writeValueAsBytes(new Legacy(pdf));
+
+        if (!java.util.Arrays.equals(json, mapper.writeValueAsBytes(new Streaming(pdf))))
+            throw new IllegalStateException("Streaming serializer output differs from the persisted format");
+        if (!mapper.readValue(json, Streaming.class).bytes().equals(pdf))
+            throw new IllegalStateException("Streaming deserializer cannot read the persisted format");
+    }
+
+    @Benchmark
+    public byte[] serializeLegacy() throws IOException {
+        return mapper.writeValueAsBytes(new Legacy(pdf));
+    }
+
+    @Benchmark
+    public byte[] serializeStreaming() throws IOException {
+        return mapper.writeValueAsBytes(new Streaming(pdf));
+    }
+
+    @Benchmark
+    public ByteString deserializeLegacy() throws IOException {
+        return mapper.readValue(json, Legacy.class).bytes();
+    }
+
+    @Benchmark
+    public ByteString deserializeStreaming() throws IOException {
+        return mapper.readValue(json, Streaming.class).bytes();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.resume.domain;
+
+import akka.javasdk.JsonSupport;
+import akka.util.ByteString;
+import com.example.resume.bench.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of the Gemini replies, as done by {@code GeminiService}: the reply String is wrapped
+ * in a ByteString and read with {@link JsonSupport#decodeJson}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonDecodeBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int entries;
+
+    private String answersReply;
+    private String fieldsReply;
+
+    @Setup
+    public void setup() {
+        answersReply = Fixtures.answersJson(entries);
+        fieldsReply = Fixtures.resumeFieldsJson(entries);
+
+        if (JsonSupport.decodeJson(Answers.class, ByteString.fromString(answersReply)).answers().size() != entries)
+            throw new IllegalStateException("Answers fixture does not decode");
+        if (JsonSupport.decodeJson(ResumeFields.class, ByteString.fromString(fieldsReply)).fields().size() != entries)
+            throw new IllegalStateException("ResumeFields fixture does not decode");
+    }
+
+    @Benchmark
+    public Answers decodeAnswers() {
+        return JsonSupport.decodeJson(Answers.class, ByteString.fromString(answersReply));
+    }
+
+    @Benchmark
+    public ResumeFields decodeResumeFields() {
+        return JsonSupport.decodeJson(ResumeFields.class, ByteString.fromString(fieldsReply));
+    }
+}
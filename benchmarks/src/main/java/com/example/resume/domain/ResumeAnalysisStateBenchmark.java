@@ -0,0 +1,56 @@
+package com.example.resume.domain;
+
+import com.example.resume.bench.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies of the workflow state made by the {@code with*} methods, replayed in the order of a full analysis.
+ * Each copy is a new record, so the allocation rate ({@code -prof gc}) matters as much as the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResumeAnalysisStateBenchmark {
+
+    @Param({"10", "100"})
+    public int questionCount;
+
+    private final BlobRef resume = new BlobRef("resume-digest", 120_000, "application/pdf");
+    private final BlobRef applicationForm = new BlobRef("form-digest", 80_000, "application/pdf");
+    private final Instant now = Instant.now();
+    private String resumeInfo;
+    private List<Question> questions;
+    private List<Answer> answers;
+
+    @Setup
+    public void setup() {
+        resumeInfo = Fixtures.resumeMarkdown(16);
+        questions = Fixtures.questions(questionCount);
+        answers = questions.stream().map(q -> new Answer(q.question(), "Yes")).toList();
+    }
+
+    @Benchmark
+    public ResumeAnalysisState fullAnalysis() {
+        return ResumeAnalysisState.initial()
+                .withApplicationForm(applicationForm)
+                .withResume(resume)
+                .withStarted(now)
+                .withExtractionAttempt()
+                .withStepCompleted("extract-documents-step", now)
+                .withQuestions(questions)
+                .withResumeInfo(resumeInfo)
+                .withState(ResumeAnalysisState.StateEnum.DOCUMENTS_PROCESSED)
+                .withStepCompleted("answer-questions-step", now)
+                .withAnswers(answers)
+                .withState(ResumeAnalysisState.StateEnum.ANSWERS_GENERATED)
+                .withStepCompleted("result-step", now)
+                .withState(ResumeAnalysisState.StateEnum.FINISHED);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.resume.domain;
+
+import akka.javasdk.JsonSupport;
+import com.example.resume.bench.Fixtures;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persisted workflow state once answered: plain JSON vs the resume and answers deflated by {@link CompressedSerializer}.
+ * The setup prints the persisted size of both; the write time is the cost added to each state transition.
+ * <p>
+ * The setup fails if the compressed state does not read back, or if a plain state is not read by the compressed codec.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StateCompressionBenchmark {
+
+    // Same mapping as the state, without the compression of its fields
+    public static class PlainIntrospector extends JacksonAnnotationIntrospector {
+        @Override
+        public Object findSerializer(Annotated a) {
+            var serializer = super.findSerializer(a);
+            return serializer == CompressedSerializer.class ? null : serializer;
+        }
+
+        @Override
+        public Object findDeserializer(Annotated a) {
+            var deserializer = super.findDeserializer(a);
+            return deserializer == CompressedDeserializer.class ? null : deserializer;
+        }
+    }
+
+    @Param({"4", "16", "64"})
+    public int resumeKilobytes;
+
+    @Param({"20", "200"})
+    public int questionCount;
+
+    private final ObjectMapper compressed = JsonSupport.getObjectMapper();
+    private final ObjectMapper plain = compressed.copy().setAnnotationIntrospector(new PlainIntrospector());
+    private ResumeAnalysisState state;
+    private byte[] compressedJson;
+    private byte[] plainJson;
+
+    @Setup
+    public void setup() throws IOException {
+        var questions = Fixtures.questions(questionCount);
+        var answers = questions.stream()
+                .map(q -> new Answer(q.question(), "The candidate has five years of experience with it, in production."))
+                .toList();
+        state = ResumeAnalysisState.initial()
+                .withApplicationForm(new BlobRef("form-digest", 80_000, "application/pdf"))
+                .withResume(new BlobRef("resume-digest", 120_000, "application/pdf"))
+                .withStarted(Instant.now())
+                .withQuestions(questions)
+                .withResumeInfo(Fixtures.resumeMarkdown(resumeKilobytes))
+                .withAnswers(answers)
+                .withState(ResumeAnalysisState.StateEnum.ANSWERS_GENERATED);
+
+        compressedJson = compressed.writeValueAsBytes(state);
+        plainJson = plain.writeValueAsBytes(state);
+        if (!compressed.readValue(compressedJson, ResumeAnalysisState.class).equals(state)
+                || !compressed.readValue(plainJson, ResumeAnalysisState.class).equals(state))
+            throw new IllegalStateException("Compressed state is not compatible with the plain one");
+
+        System.out.printf("%nPersisted state: %d bytes plain, %d bytes compressed%n", plainJson.length, compressedJson.length);
+    }
+
+    @Benchmark
+    public byte[] writePlain() throws IOException {
+        return plain.writeValueAsBytes(state);
+    }
+
+    @Benchmark
+    public byte[] writeCompressed() throws IOException {
+        return compressed.writeValueAsBytes(state);
+    }
+
+    @Benchmark
+    public ResumeAnalysisState readPlain() throws IOException {
+        return plain.readValue(plainJson, ResumeAnalysisState.class);
+    }
+
+    @Benchmark
+    public ResumeAnalysisState readCompressed() throws IOException {
+        return compressed.readValue(compressedJson, ResumeAnalysisState.class);
+    }
+}
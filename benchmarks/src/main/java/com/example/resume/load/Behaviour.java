@@ -0,0 +1,50 @@
+package com.example.resume.load;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How a fake provider answers: response latency drawn from a log-normal distribution
+ * given by its median and 99th percentile, a share of 500 errors and a share of 429s.
+ * <p>
+ * Read from system properties under a prefix, e.g. {@code -Dgemini.latency.median=800}
+ * (milliseconds) or {@code -Dgemini.throttle-rate=0.05}.
+ */
+public record Behaviour(Duration medianLatency, Duration p99Latency, double errorRate, double throttleRate) {
+
+    // z-score of the 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.326;
+
+    public enum Outcome { OK, ERROR, THROTTLED }
+
+    public static Behaviour fromSystemProperties(String prefix, Behaviour defaults) {
+        return new Behaviour(
+                millis(prefix + ".latency.median", defaults.medianLatency()),
+                millis(prefix + ".latency.p99", defaults.p99Latency()),
+                Double.parseDouble(System.getProperty(prefix + ".error-rate", String.valueOf(defaults.errorRate()))),
+                Double.parseDouble(System.getProperty(prefix + ".throttle-rate", String.valueOf(defaults.throttleRate()))));
+    }
+
+    static Duration millis(String property, Duration defaultValue) {
+        var value = System.getProperty(property);
+        return value == null ? defaultValue : Duration.ofMillis(Long.parseLong(value));
+    }
+
+    public Duration sampleLatency() {
+        return logNormal(medianLatency, p99Latency);
+    }
+
+    public Outcome sampleOutcome() {
+        var draw = ThreadLocalRandom.current().nextDouble();
+        if (draw < throttleRate) return Outcome.THROTTLED;
+        if (draw < throttleRate + errorRate) return Outcome.ERROR;
+        return Outcome.OK;
+    }
+
+    static Duration logNormal(Duration median, Duration p99) {
+        var medianMillis = Math.max(1, median.toMillis());
+        var sigma = Math.log(Math.max(medianMillis, p99.toMillis()) / (double) medianMillis) / Z_99;
+        var sample = medianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian());
+        return Duration.ofMillis(Math.round(sample));
+    }
+}
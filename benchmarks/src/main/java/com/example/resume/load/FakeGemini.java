@@ -0,0 +1,83 @@
+package com.example.resume.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in of Gemini {@code generateContent}, answering the two prompts of the service:
+ * the conversion of a parsed form into a list of fields and the answers to questions about a resume.
+ * <p>
+ * {@code streamGenerateContent} sends the same reply as server-sent events of {@code streamChunkSize}
+ * characters, one every {@code streamInterval}, like a model generating it.
+ */
+public class FakeGemini extends FakeServer {
+
+    private static final Pattern GENERATE = Pattern.compile("/v1beta/models/[^/:]+:(generateContent|streamGenerateContent)");
+    private static final Pattern QUESTION = Pattern.compile("<question>(.*?)</question>", Pattern.DOTALL);
+    private static final Pattern FORM = Pattern.compile("<form>(.*?)</form>", Pattern.DOTALL);
+
+    private final int streamChunkSize;
+    private final Duration streamInterval;
+
+    public FakeGemini(int port, Behaviour behaviour, int streamChunkSize, Duration streamInterval) {
+        super(port, behaviour);
+        this.streamChunkSize = streamChunkSize;
+        this.streamInterval = streamInterval;
+    }
+
+    @Override
+    protected Response handle(String method, String path, byte[] body) {
+        var matcher = GENERATE.matcher(path);
+        if (!method.equals("POST") || !matcher.matches()) return Response.notFound();
+
+        var prompt = prompt(body);
+        var reply = prompt.contains("<questions>") ? answers(prompt) : fields(prompt);
+        if (matcher.group(1).equals("generateContent")) return Response.json(candidates(reply));
+
+        var events = new ArrayList<String>();
+        for (int start = 0; start < reply.length(); start += streamChunkSize) {
+            var text = reply.substring(start, Math.min(reply.length(), start + streamChunkSize));
+            events.add("data: " + Response.json(candidates(text)).body() + "\r\n\r\n");
+        }
+        return Response.stream("text/event-stream", events, streamInterval);
+    }
+
+    private static Map<String, Object> candidates(String text) {
+        return Map.of("candidates", List.of(
+                Map.of("content", Map.of("parts", List.of(Map.of("text", text))))));
+    }
+
+    private static String prompt(byte[] body) {
+        try {
+            JsonNode request = mapper.readTree(body);
+            return request.path("contents").path(0).path("parts").path(0).path("text").asText();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String answers(String prompt) {
+        var answers = QUESTION.matcher(prompt).results()
+                .map(question -> Map.of("question", question.group(1), "answer", "The candidate has five years of experience with it."))
+                .toList();
+        return Response.json(Map.of("answers", answers)).body();
+    }
+
+    private static String fields(String prompt) {
+        var form = FORM.matcher(prompt);
+        var markdown = form.find() ? form.group(1) : "";
+        var fields = markdown.lines()
+                .map(String::strip)
+                .filter(line -> line.startsWith("- "))
+                .map(line -> line.substring(2))
+                .toList();
+        return Response.json(Map.of("fields", fields)).body();
+    }
+}
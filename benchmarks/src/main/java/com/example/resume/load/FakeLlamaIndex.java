@@ -0,0 +1,130 @@
+package com.example.resume.load;
+
+import com.example.resume.bench.Fixtures;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Stand-in of the LlamaIndex parsing API: upload, job status and raw markdown result.
+ * <p>
+ * A job stays PENDING for a random duration between {@code minPending} and {@code maxPending},
+ * then fails with probability {@code jobErrorRate} or succeeds. Uploads named like an application
+ * form produce a bulleted list of {@code formFields} fields, any other upload a resume.
+ * <p>
+ * Uploads with a {@code webhook_url} get a completion notification posted to it when the job leaves PENDING,
+ * unless it is lost, with probability {@code lostNotificationRate}.
+ */
+public class FakeLlamaIndex extends FakeServer {
+
+    public record JobSettings(Duration minPending, Duration maxPending, double jobErrorRate, int formFields, double lostNotificationRate) {
+        public static JobSettings fromSystemProperties(JobSettings defaults) {
+            return new JobSettings(
+                    Behaviour.millis("llamaindex.pending.min", defaults.minPending()),
+                    Behaviour.millis("llamaindex.pending.max", defaults.maxPending()),
+                    Double.parseDouble(System.getProperty("llamaindex.job-error-rate", String.valueOf(defaults.jobErrorRate()))),
+                    Integer.getInteger("llamaindex.form-fields", defaults.formFields()),
+                    Double.parseDouble(System.getProperty("llamaindex.lost-notification-rate", String.valueOf(defaults.lostNotificationRate()))));
+        }
+    }
+
+    private record Job(boolean applicationForm, long readyAtMillis, boolean fails) {}
+
+    private static final Pattern JOB = Pattern.compile("/api/v1/parsing/job/([^/]+)(/result/raw/markdown)?");
+    // last part of the multipart body, after the file
+    private static final Pattern WEBHOOK_URL = Pattern.compile("name=\"?webhook_url\"?.*?\r\n\r\n(.*?)\r\n--", Pattern.DOTALL);
+
+    private final JobSettings jobs;
+    private final Map<UUID, Job> pending = new ConcurrentHashMap<>();
+    private final String resumeMarkdown = Fixtures.resumeMarkdown(8);
+    private final HttpClient webhookClient = HttpClient.newHttpClient();
+    private final LongAdder notifications = new LongAdder();
+
+    public FakeLlamaIndex(int port, Behaviour behaviour, JobSettings jobs) {
+        super(port, behaviour);
+        this.jobs = jobs;
+    }
+
+    @Override
+    protected Response handle(String method, String path, byte[] body) {
+        if (method.equals("POST") && path.equals("/api/v1/parsing/upload")) return upload(body);
+
+        var matcher = JOB.matcher(path);
+        if (!method.equals("GET") || !matcher.matches()) return Response.notFound();
+
+        var id = UUID.fromString(matcher.group(1));
+        var job = pending.get(id);
+        if (job == null) return Response.notFound();
+
+        if (matcher.group(2) == null) return Response.json(status(id, job));
+        if (System.currentTimeMillis() < job.readyAtMillis() || job.fails()) return Response.notFound();
+        return new Response(200, "text/markdown", job.applicationForm() ? formMarkdown() : resumeMarkdown);
+    }
+
+    private Response upload(byte[] body) {
+        // the filename is in the multipart headers, near the start of the body
+        var head = new String(body, 0, Math.min(body.length, 4096), StandardCharsets.ISO_8859_1);
+        var random = ThreadLocalRandom.current();
+        var pendingMillis = random.nextLong(jobs.minPending().toMillis(), jobs.maxPending().toMillis() + 1);
+
+        var id = UUID.randomUUID();
+        var job = new Job(head.contains("application-form.pdf"), System.currentTimeMillis() + pendingMillis, random.nextDouble() < jobs.jobErrorRate());
+        pending.put(id, job);
+
+        var webhookUrl = webhookUrl(body);
+        if (webhookUrl != null && random.nextDouble() >= jobs.lostNotificationRate())
+            later(() -> notifyCompleted(webhookUrl, id, job), pendingMillis);
+        return Response.json(status(id, job));
+    }
+
+    private static String webhookUrl(byte[] body) {
+        var tail = new String(body, Math.max(0, body.length - 4096), Math.min(body.length, 4096), StandardCharsets.ISO_8859_1);
+        var matcher = WEBHOOK_URL.matcher(tail);
+        return matcher.find() ? matcher.group(1).trim() : null;
+    }
+
+    private void notifyCompleted(String webhookUrl, UUID id, Job job) {
+        try {
+            var request = HttpRequest.newBuilder(URI.create(webhookUrl))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(Map.of("job_id", id.toString(), "status", job.fails() ? "ERROR" : "SUCCESS"))))
+                    .build();
+            webhookClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenRun(notifications::increment);
+        } catch (IOException | IllegalArgumentException e) {
+            // not a usable URL: the service still polls
+        }
+    }
+
+    @Override
+    public String summary() {
+        return super.summary() + ", " + notifications.sum() + " notifications";
+    }
+
+    private Map<String, Object> status(UUID id, Job job) {
+        var status = System.currentTimeMillis() < job.readyAtMillis() ? "PENDING" : job.fails() ? "ERROR" : "SUCCESS";
+        var response = new LinkedHashMap<String, Object>();
+        response.put("id", id.toString());
+        response.put("status", status);
+        response.put("errorCode", job.fails() && status.equals("ERROR") ? "PARSE_FAILED" : null);
+        response.put("errorMessage", job.fails() && status.equals("ERROR") ? "Injected failure" : null);
+        return response;
+    }
+
+    private String formMarkdown() {
+        return Fixtures.fields(jobs.formFields()).stream().map(field -> "- " + field).collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.resume.load;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs the fake LlamaIndex and Gemini servers until killed, printing their statistics every 10 seconds.
+ * Start the service with the printed base URLs, e.g.
+ * <pre>
+ * java -Dgemini.throttle-rate=0.05 -cp target/benchmarks.jar com.example.resume.load.FakeProviders
+ * LLAMAINDEX_BASE_URL=http://localhost:9101 GEMINI_BASE_URL=http://localhost:9102 mvn compile exec:java
+ * </pre>
+ */
+public final class FakeProviders {
+
+    public static final Behaviour LLAMAINDEX_DEFAULTS = new Behaviour(Duration.ofMillis(150), Duration.ofMillis(1500), 0.01, 0.01);
+    public static final FakeLlamaIndex.JobSettings JOB_DEFAULTS = new FakeLlamaIndex.JobSettings(Duration.ofSeconds(2), Duration.ofSeconds(8), 0.01, 20, 0.02);
+    public static final Behaviour GEMINI_DEFAULTS = new Behaviour(Duration.ofMillis(800), Duration.ofMillis(6000), 0.01, 0.02);
+
+    private FakeProviders() {}
+
+    public static void main(String[] args) throws InterruptedException {
+        var llamaIndex = new FakeLlamaIndex(Integer.getInteger("llamaindex.port", 9101),
+                Behaviour.fromSystemProperties("llamaindex", LLAMAINDEX_DEFAULTS),
+                FakeLlamaIndex.JobSettings.fromSystemProperties(JOB_DEFAULTS)).start();
+        var gemini = new FakeGemini(Integer.getInteger("gemini.port", 9102),
+                Behaviour.fromSystemProperties("gemini", GEMINI_DEFAULTS),
+                Integer.getInteger("gemini.stream.chunk-size", 40),
+                Behaviour.millis("gemini.stream.interval", Duration.ofMillis(30))).start();
+
+        System.out.println("LLAMAINDEX_BASE_URL=" + llamaIndex.baseUrl());
+        System.out.println("GEMINI_BASE_URL=" + gemini.baseUrl());
+
+        Thread.ofPlatform().daemon().start(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                System.out.println(llamaIndex.summary() + " | " + gemini.summary());
+            }
+        });
+        new CountDownLatch(1).await();
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.resume.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Embeddable HTTP stand-in of an external provider, on the JDK HTTP server.
+ * <p>
+ * Responses are sent from a scheduler after the sampled latency, so slow responses do not
+ * hold a thread: thousands of requests can be pending at once.
+ */
+public abstract class FakeServer implements AutoCloseable {
+
+    protected static final ObjectMapper mapper = new ObjectMapper();
+
+    protected final Behaviour behaviour;
+    private final HttpServer server;
+    private final ScheduledExecutorService scheduler;
+
+    protected final LongAdder requests = new LongAdder();
+    protected final LongAdder errors = new LongAdder();
+    protected final LongAdder throttled = new LongAdder();
+
+    protected FakeServer(int port, Behaviour behaviour) {
+        this.behaviour = behaviour;
+        this.scheduler = Executors.newScheduledThreadPool(2, Thread.ofPlatform().daemon().name(getClass().getSimpleName() + "-", 0).factory());
+        try {
+            this.server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", this::dispatch);
+    }
+
+    public FakeServer start() {
+        server.start();
+        return this;
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        scheduler.shutdownNow();
+    }
+
+    public String summary() {
+        return "%s: %d requests, %d errors, %d throttled".formatted(getClass().getSimpleName(), requests.sum(), errors.sum(), throttled.sum());
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException {
+        requests.increment();
+        // the body is read on the request thread, the response is delayed
+        var body = exchange.getRequestBody().readAllBytes();
+
+        switch (behaviour.sampleOutcome()) {
+            case THROTTLED -> {
+                throttled.increment();
+                respondLater(exchange, 429, "application/json", "{\"error\":\"rate limited\"}");
+            }
+            case ERROR -> {
+                errors.increment();
+                respondLater(exchange, 500, "application/json", "{\"error\":\"internal error\"}");
+            }
+            case OK -> {
+                try {
+                    var response = handle(exchange.getRequestMethod(), exchange.getRequestURI().getPath(), body);
+                    if (response.chunks() != null) streamLater(exchange, response);
+                    else respondLater(exchange, response.status(), response.contentType(), response.body());
+                } catch (RuntimeException e) {
+                    respondLater(exchange, 400, "text/plain", String.valueOf(e.getMessage()));
+                }
+            }
+        }
+    }
+
+    /**
+     * A response, sent whole or, with {@code chunks}, streamed one chunk every {@code interval}.
+     */
+    protected record Response(int status, String contentType, String body, List<String> chunks, Duration interval) {
+
+        Response(int status, String contentType, String body) {
+            this(status, contentType, body, null, Duration.ZERO);
+        }
+
+        static Response stream(String contentType, List<String> chunks, Duration interval) {
+            return new Response(200, contentType, null, chunks, interval);
+        }
+
+        static Response json(Object value) {
+            try {
+                return new Response(200, "application/json", mapper.writeValueAsString(value));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        static Response notFound() {
+            return new Response(404, "application/json", "{\"error\":\"not found\"}");
+        }
+    }
+
+    protected abstract Response handle(String method, String path, byte[] body);
+
+    // Task run on the scheduler of the responses, e.g. an outbound call of the provider
+    protected void later(Runnable task, long delayMillis) {
+        scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void respondLater(HttpExchange exchange, int status, String contentType, String body) {
+        scheduler.schedule(() -> respond(exchange, status, contentType, body), behaviour.sampleLatency().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // The first chunk after the sampled latency, the others at the interval of the response
+    private void streamLater(HttpExchange exchange, Response response) {
+        scheduler.schedule(() -> {
+            try {
+                exchange.getResponseHeaders().set("Content-Type", response.contentType());
+                exchange.sendResponseHeaders(200, 0);
+                writeChunk(exchange, response, 0);
+            } catch (IOException e) {
+                exchange.close();
+            }
+        }, behaviour.sampleLatency().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void writeChunk(HttpExchange exchange, Response response, int index) {
+        if (index == response.chunks().size()) {
+            exchange.close();
+            return;
+        }
+        try {
+            exchange.getResponseBody().write(response.chunks().get(index).getBytes(StandardCharsets.UTF_8));
+            exchange.getResponseBody().flush();
+            scheduler.schedule(() -> writeChunk(exchange, response, index + 1), response.interval().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (IOException e) {
+            // client gone
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) {
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        try {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        } catch (IOException e) {
+            // client gone, e.g. after a timeout
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.resume.load;
+
+import com.example.resume.bench.Fixtures;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+
+/**
+ * Drives {@code MyEndpoint} with many workflows at once and reports throughput, end-to-end latency,
+ * per-step latency percentiles (from the service's {@code /metrics}) and failure rates.
+ * <p>
+ * Each workflow uploads the bundled application form and resume, starts, and is polled until it
+ * finishes or fails. Arguments are {@code key=value} pairs:
+ * {@code url} (http://localhost:9000), {@code workflows} (100), {@code concurrency} (20),
+ * {@code timeout} in seconds (300), {@code poll} interval in milliseconds (500) and the {@code priority}
+ * of the workflows (interactive). Two harnesses at once, e.g. {@code priority=bulk workflows=1000} and
+ * {@code priority=interactive concurrency=2}, show the interactive latency under a bulk backlog.
+ */
+public final class LoadHarness {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Pattern STEP_BUCKET = Pattern.compile(
+            "workflow_step_duration_seconds_bucket\\{step=\"([^\"]+)\",le=\"([^\"]+)\"} (\\d+)");
+
+    private record Outcome(String id, String status, Duration duration) {}
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final String url;
+    private final Duration timeout;
+    private final Duration poll;
+    private final String priority;
+    private final byte[] applicationForm = Fixtures.applicationForm().toArray();
+    private final byte[] resume = Fixtures.resume().toArray();
+
+    private LoadHarness(String url, Duration timeout, Duration poll, String priority) {
+        this.url = url;
+        this.timeout = timeout;
+        this.poll = poll;
+        this.priority = priority;
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = new HashMap<String, String>();
+        for (var arg : args) {
+            var pair = arg.split("=", 2);
+            options.put(pair[0], pair.length > 1 ? pair[1] : "");
+        }
+        var workflows = Integer.parseInt(options.getOrDefault("workflows", "100"));
+        var concurrency = Integer.parseInt(options.getOrDefault("concurrency", "20"));
+        var harness = new LoadHarness(
+                options.getOrDefault("url", "http://localhost:9000"),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "300"))),
+                Duration.ofMillis(Long.parseLong(options.getOrDefault("poll", "500"))),
+                options.getOrDefault("priority", "interactive"));
+
+        harness.run(workflows, concurrency);
+    }
+
+    private void run(int workflows, int concurrency) throws Exception {
+        var run = Long.toString(System.currentTimeMillis(), 36);
+        var stepsBefore = stepBuckets();
+        var outcomes = new ConcurrentLinkedQueue<Outcome>();
+        var permits = new Semaphore(concurrency);
+
+        System.out.printf("Running %d %s workflows, %d at a time, against %s%n", workflows, priority, concurrency, url);
+        var start = System.nanoTime();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < workflows; i++) {
+                var id = "load-" + run + "-" + i;
+                permits.acquire();
+                executor.submit(() -> {
+                    try {
+                        outcomes.add(runWorkflow(id));
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        report(outcomes, elapsed);
+        reportSteps(stepsBefore, stepBuckets());
+    }
+
+    private Outcome runWorkflow(String id) {
+        var start = System.nanoTime();
+        try {
+            post(id + "/application-form", "application/pdf", applicationForm);
+            post(id + "/resume", "application/pdf", resume);
+            post(id + "/start?priority=" + priority, "application/json", new byte[0]);
+
+            var deadline = start + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(poll);
+                var status = status(id);
+                if (status.equals("FINISHED") || status.equals("FAILED"))
+                    return new Outcome(id, status, Duration.ofNanos(System.nanoTime() - start));
+            }
+            return new Outcome(id, "TIMEOUT", Duration.ofNanos(System.nanoTime() - start));
+        } catch (Exception e) {
+            return new Outcome(id, "ERROR " + e.getClass().getSimpleName(), Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    private void post(String path, String contentType, byte[] body) throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create(url + "/my-workflow/" + path))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300)
+            throw new IllegalStateException("POST " + path + " returned " + response.statusCode() + ": " + response.body());
+    }
+
+    private String status(String id) throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create(url + "/my-workflow/" + id)).GET().build();
+        var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) return "UNKNOWN";
+        return mapper.readTree(response.body()).path("status").asText();
+    }
+
+    private static void report(Collection<Outcome> outcomes, Duration elapsed) {
+        var byStatus = new TreeMap<String, Integer>();
+        outcomes.forEach(outcome -> byStatus.merge(outcome.status(), 1, Integer::sum));
+        var finished = outcomes.stream().filter(outcome -> outcome.status().equals("FINISHED"))
+                .mapToLong(outcome -> outcome.duration().toMillis()).sorted().toArray();
+
+        System.out.printf("%nElapsed %.1f s, throughput %.2f workflows/s%n", elapsed.toMillis() / 1000.0, outcomes.size() * 1000.0 / elapsed.toMillis());
+        byStatus.forEach((status, count) -> System.out.printf("  %-20s %6d (%.1f%%)%n", status, count, 100.0 * count / outcomes.size()));
+        if (finished.length > 0)
+            System.out.printf("End-to-end latency of finished workflows: p50 %d ms, p90 %d ms, p99 %d ms, max %d ms%n",
+                    percentile(finished, 0.5), percentile(finished, 0.9), percentile(finished, 0.99), finished[finished.length - 1]);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    // Cumulative bucket counts of the step latency histograms, by step and upper bound
+    private Map<String, TreeMap<Double, Long>> stepBuckets() {
+        var buckets = new TreeMap<String, TreeMap<Double, Long>>();
+        try {
+            var response = client.send(HttpRequest.newBuilder(URI.create(url + "/metrics")).GET().build(), HttpResponse.BodyHandlers.ofString());
+            STEP_BUCKET.matcher(response.body()).results().forEach(bucket -> {
+                var le = bucket.group(2).equals("+Inf") ? Double.POSITIVE_INFINITY : Double.parseDouble(bucket.group(2));
+                buckets.computeIfAbsent(bucket.group(1), __ -> new TreeMap<>()).put(le, Long.parseLong(bucket.group(3)));
+            });
+        } catch (IOException | InterruptedException e) {
+            System.out.println("Metrics not available: " + e);
+        }
+        return buckets;
+    }
+
+    // Percentiles are upper bounds of the histogram buckets, taken on the increments during the run
+    private static void reportSteps(Map<String, TreeMap<Double, Long>> before, Map<String, TreeMap<Double, Long>> after) {
+        System.out.println("Step latency (bucket upper bounds, seconds):");
+        after.forEach((step, buckets) -> {
+            var previous = before.getOrDefault(step, new TreeMap<>());
+            var delta = new TreeMap<Double, Long>();
+            buckets.forEach((le, count) -> delta.put(le, count - previous.getOrDefault(le, 0L)));
+            var total = delta.lastEntry().getValue();
+            if (total == 0) return;
+            System.out.printf("  %-25s n=%d p50<=%s p90<=%s p99<=%s%n", step, total,
+                    bound(delta, total, 0.5), bound(delta, total, 0.9), bound(delta, total, 0.99));
+        });
+    }
+
+    private static String bound(TreeMap<Double, Long> cumulative, long total, double quantile) {
+        for (var bucket : cumulative.entrySet())
+            if (bucket.getValue() >= quantile * total)
+                return bucket.getKey().isInfinite() ? "+Inf" : String.valueOf(bucket.getKey());
+        return "+Inf";
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.resume.repository;
+
+import com.example.resume.bench.Fixtures;
+import com.example.resume.domain.Question;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prompt assembly of {@code GeminiService.answerToQuestions}: the split in chunks and the prompt of each chunk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnswerPromptBenchmark {
+
+    @Param({"4", "64"})
+    public int resumeKilobytes;
+
+    @Param({"10", "100"})
+    public int questionCount;
+
+    // As in application.conf
+    private final GeminiService.Chunking chunking = new GeminiService.Chunking(15, 12_000, 2, true);
+    private String resumeInfo;
+    private List<Question> questions;
+
+    @Setup
+    public void setup() {
+        resumeInfo = Fixtures.resumeMarkdown(resumeKilobytes);
+        questions = Fixtures.questions(questionCount);
+    }
+
+    @Benchmark
+    public String singlePrompt() {
+        return GeminiService.answerPrompt(resumeInfo, questions);
+    }
+
+    @Benchmark
+    public int chunkedPrompts() {
+        var length = 0;
+        for (var chunk : GeminiService.chunk(resumeInfo, questions, chunking))
+            length += GeminiService.answerPrompt(resumeInfo, chunk).length();
+        return length;
+    }
+}
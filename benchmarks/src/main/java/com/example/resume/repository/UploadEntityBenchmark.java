@@ -0,0 +1,41 @@
+package com.example.resume.repository;
+
+import akka.util.ByteString;
+import com.example.resume.bench.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multipart body of a LlamaIndex upload, built and then copied to the byte array handed to the HTTP client.
+ * {@code entityOnly} separates the cost of the multipart rendering from the copy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UploadEntityBenchmark {
+
+    @Param({"0", "1", "5", "20"})
+    public int megabytes;
+
+    private ByteString pdf;
+
+    @Setup
+    public void setup() {
+        // 0 stands for the bundled resume as is
+        pdf = megabytes == 0 ? Fixtures.resume() : Fixtures.pdfOfSize(megabytes);
+    }
+
+    @Benchmark
+    public Object entityOnly() {
+        return LLamaIndexService.uploadEntity(LLamaIndexService.RESUME, pdf);
+    }
+
+    @Benchmark
+    public byte[] entityToArray() {
+        return LLamaIndexService.uploadEntity(LLamaIndexService.RESUME, pdf).getData().toArray();
+    }
+}
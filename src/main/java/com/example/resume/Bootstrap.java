@@ -0,0 +1,155 @@
+package com.example.resume;
+
+import akka.javasdk.DependencyProvider;
+import akka.javasdk.ServiceSetup;
+import akka.javasdk.annotations.Setup;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.http.HttpClientProvider;
+import com.example.resume.api.LlamaIndexWebhookEndpoint;
+import com.example.resume.api.PdfUpload;
+import com.example.resume.application.AdmissionScheduler;
+import com.example.resume.application.AnswerStore;
+import com.example.resume.application.DocumentParser;
+import com.example.resume.application.FormTemplates;
+import com.example.resume.application.LlamaIndexJobs;
+import com.example.resume.domain.Priority;
+import com.example.resume.repository.*;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the services shared by all component instances of this node.
+ * Components declare them as constructor parameters and get them from the {@link DependencyProvider}.
+ */
+@Setup
+public class Bootstrap implements ServiceSetup {
+
+    private static final Logger logger = LoggerFactory.getLogger(Bootstrap.class);
+
+    private final Config config;
+    private final HttpClientProvider httpClientProvider;
+    private final ComponentClient componentClient;
+
+    public Bootstrap(Config config, HttpClientProvider httpClientProvider, ComponentClient componentClient) {
+        this.config = config;
+        this.httpClientProvider = httpClientProvider;
+        this.componentClient = componentClient;
+    }
+
+    @Override
+    public DependencyProvider createDependencyProvider() {
+        var dependencies = new HashMap<Class<?>, Object>();
+
+        var metrics = new Metrics();
+        dependencies.put(Metrics.class, metrics);
+
+        var scheduler = scheduler(config.getInt("scheduler-threads"));
+        dependencies.put(ScheduledExecutorService.class, scheduler);
+        dependencies.put(BlobStore.class, blobStore(config.getConfig("blob-store")));
+        dependencies.put(PdfUpload.Limits.class, PdfUpload.Limits.fromConfig(config.getConfig("uploads")));
+
+        var retry = new Retry(Retry.Settings.fromConfig(config.getConfig("resilience.retry")), scheduler);
+        var timeouts = new TimeoutPolicy(TimeoutPolicy.Settings.fromConfig(config.getConfig("timeouts")), metrics);
+        dependencies.put(TimeoutPolicy.class, timeouts);
+        var webhookSettings = LlamaIndexWebhookEndpoint.Settings.fromConfig(config.getConfig("llamaindex-webhook"));
+        dependencies.put(LlamaIndexWebhookEndpoint.Settings.class, webhookSettings);
+        var jobs = new LlamaIndexJobs(componentClient);
+        dependencies.put(LlamaIndexJobs.class, jobs);
+        // with the webhook, the notifications received by any node are read from the jobs: polling is only a slow sweep
+        var poller = webhookSettings.enabled()
+                ? new JobPoller(scheduler, JobPoller.Settings.fromConfig(config.getConfig("llamaindex-webhook.fallback-polling")), jobs,
+                        config.getDuration("llamaindex-webhook.check-interval"), metrics)
+                : new JobPoller(scheduler, JobPoller.Settings.fromConfig(config.getConfig("llamaindex-polling")), metrics);
+        dependencies.put(JobPoller.class, poller);
+        var llamaLimiter = new RateLimiter("llamaindex", RateLimiter.Settings.fromConfig(config.getConfig("rate-limits.llamaindex")), scheduler);
+        var llama = new LLamaIndexService(config.getString("llamaindex-api-key"), config.getString("llamaindex-base-url"),
+                webhookSettings.enabled() ? webhookSettings.callbackUrl() : null, httpClientProvider, poller, llamaLimiter, retry, timeouts, metrics);
+        dependencies.put(LLamaIndexService.class, llama);
+        var localExtractor = new LocalPdfExtractor(LocalPdfExtractor.Settings.fromConfig(config.getConfig("local-extraction")),
+                Executors.newFixedThreadPool(config.getInt("local-extraction.threads"), daemonThreads("pdf-extraction")));
+        var parser = new DocumentParser(llama, jobs, localExtractor, metrics, componentClient, config.getBytes("parsed-markdown-cache.max-memory-size"));
+        dependencies.put(DocumentParser.class, parser);
+
+        var geminiLimiter = new RateLimiter("gemini", RateLimiter.Settings.fromConfig(config.getConfig("rate-limits.gemini")), scheduler);
+        var gemini = new GeminiService(config.getString("gemini-api-key"), config.getString("gemini-base-url"), httpClientProvider,
+                GeminiService.Chunking.fromConfig(config.getConfig("gemini-answers")),
+                ResumeIndex.Selection.fromConfig(config.getConfig("gemini-answers.resume-sections")), geminiLimiter,
+                retry, timeouts, Hedging.Settings.fromConfig(config.getConfig("resilience.hedging")), scheduler, metrics);
+        dependencies.put(GeminiService.class, gemini);
+        dependencies.put(FormTemplates.class, new FormTemplates(parser, gemini, componentClient));
+        dependencies.put(AnswerStore.class, new AnswerStore(gemini, componentClient, metrics));
+        var admission = new AdmissionScheduler(AdmissionScheduler.Settings.fromConfig(config.getConfig("admission")), scheduler, metrics);
+        dependencies.put(AdmissionScheduler.class, admission);
+
+        registerGauges(metrics, parser, admission, llamaLimiter, geminiLimiter);
+
+        logger.info("Registered dependencies {}", dependencies.keySet());
+        return provider(dependencies);
+    }
+
+    // Statistics kept by the components themselves, read at scrape time
+    private static void registerGauges(Metrics metrics, DocumentParser parser, AdmissionScheduler admission, RateLimiter... limiters) {
+        metrics.gauge("cache_hits", "Parsed markdown cache hits", () -> parser.stats().memoryHits(), "cache", "parsed-markdown", "tier", "memory");
+        metrics.gauge("cache_hits", "Parsed markdown cache hits", () -> parser.stats().durableHits(), "cache", "parsed-markdown", "tier", "durable");
+        metrics.gauge("cache_misses", "Parsed markdown cache misses", () -> parser.stats().misses(), "cache", "parsed-markdown");
+
+        for (var priority : Priority.values()) {
+            var label = priority.name().toLowerCase();
+            metrics.gauge("admission_queued", "Analyses waiting for admission", () -> admission.stats(priority).queued(), "priority", label);
+            metrics.gauge("admission_running", "Admitted analyses not ended yet", () -> admission.stats(priority).running(), "priority", label);
+        }
+
+        for (var limiter : limiters) {
+            var name = limiter.stats().name();
+            metrics.gauge("rate_limiter_queued", "Calls waiting for the rate limiter", () -> limiter.stats().queued(), "provider", name);
+            metrics.gauge("rate_limiter_in_flight", "Calls admitted by the rate limiter and running", () -> limiter.stats().inFlight(), "provider", name);
+            metrics.gauge("rate_limiter_average_wait_milliseconds", "Average wait before admission", () -> limiter.stats().averageWaitMillis(), "provider", name);
+        }
+    }
+
+    private static DependencyProvider provider(Map<Class<?>, Object> dependencies) {
+        return new DependencyProvider() {
+            @Override
+            public <T> T getDependency(Class<T> clazz) {
+                var dependency = dependencies.get(clazz);
+                if (dependency == null)
+                    throw new IllegalArgumentException("No dependency registered for " + clazz.getName());
+                return clazz.cast(dependency);
+            }
+        };
+    }
+
+    private static BlobStore blobStore(Config config) {
+        var type = config.getString("type");
+        return switch (type) {
+            case "local" -> new LocalFileBlobStore(
+                    Path.of(config.getString("directory")),
+                    Executors.newFixedThreadPool(config.getInt("io-threads"), daemonThreads("blob-store-io")));
+            case "in-memory" -> new InMemoryBlobStore();
+            default -> throw new IllegalArgumentException("Unknown blob store type " + type);
+        };
+    }
+
+    // Small, fixed pool of daemon threads: tasks only fire requests, they never wait on them
+    private static ScheduledExecutorService scheduler(int threads) {
+        return Executors.newScheduledThreadPool(threads, daemonThreads("resume-scheduler"));
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        var counter = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.resume;
+
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread safe, in-memory LRU cache bounded by the total weight of its values (e.g. their size in bytes).
+ * Least recently used entries are evicted until the total weight fits again.
+ */
+public class LruCache<K, V> {
+
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight = 0;
+
+    public LruCache(long maxWeight, ToLongFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    public synchronized Optional<V> get(K key) {
+        return Optional.ofNullable(entries.get(key));
+    }
+
+    public synchronized void put(K key, V value) {
+        var previous = entries.put(key, value);
+        if (previous != null) weight -= weigher.applyAsLong(previous);
+        weight += weigher.applyAsLong(value);
+
+        var eldest = entries.entrySet().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            weight -= weigher.applyAsLong(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.resume;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-process registry of counters, gauges and histograms, rendered in the Prometheus text format.
+ * <p>
+ * Metrics are identified by name and labels, given as alternating label names and values.
+ */
+public class Metrics {
+
+    // Seconds
+    public static final double[] LATENCY_BUCKETS = {0.01, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 20, 30, 60, 120};
+    // Bytes
+    public static final double[] SIZE_BUCKETS = {1 << 10, 8 << 10, 64 << 10, 256 << 10, 1 << 20, 4 << 20, 16 << 20, 64 << 20};
+    public static final double[] COUNT_BUCKETS = {1, 2, 3, 5, 8, 13, 21, 34, 55};
+
+    private record Key(String name, String labels) {}
+
+    private static final class Histogram {
+        private final double[] buckets;
+        private final LongAdder[] counts;
+        private final DoubleAdder sum = new DoubleAdder();
+        private final LongAdder count = new LongAdder();
+
+        Histogram(double[] buckets) {
+            this.buckets = buckets;
+            this.counts = new LongAdder[buckets.length];
+            for (int i = 0; i < buckets.length; i++) counts[i] = new LongAdder();
+        }
+
+        void observe(double value) {
+            for (int i = 0; i < buckets.length; i++)
+                if (value <= buckets[i]) counts[i].increment();
+            sum.add(value);
+            count.increment();
+        }
+    }
+
+    private final Map<String, String> help = new ConcurrentHashMap<>();
+    private final Map<String, String> types = new ConcurrentHashMap<>();
+    private final Map<Key, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<Key, AtomicLong> levels = new ConcurrentHashMap<>();
+    private final Map<Key, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<Key, Histogram> histograms = new ConcurrentHashMap<>();
+
+    public void increment(String name, String description, String... labels) {
+        add(name, description, 1, labels);
+    }
+
+    public void add(String name, String description, long amount, String... labels) {
+        describe(name, description, "counter");
+        counters.computeIfAbsent(key(name, labels), __ -> new LongAdder()).add(amount);
+    }
+
+    public void observe(String name, String description, double[] buckets, double value, String... labels) {
+        describe(name, description, "histogram");
+        histograms.computeIfAbsent(key(name, labels), __ -> new Histogram(buckets)).observe(value);
+    }
+
+    // Gauge read at scrape time
+    public void gauge(String name, String description, DoubleSupplier value, String... labels) {
+        describe(name, description, "gauge");
+        gauges.put(key(name, labels), value);
+    }
+
+    // Gauge moved up and down by the code, e.g. the calls in flight
+    public AtomicLong level(String name, String description, String... labels) {
+        describe(name, description, "gauge");
+        return levels.computeIfAbsent(key(name, labels), __ -> new AtomicLong());
+    }
+
+    /**
+     * Records latency, errors by cause and in-flight count of an asynchronous operation.
+     * The metrics are {@code <prefix>_duration_seconds}, {@code <prefix>_errors_total} and {@code <prefix>_in_flight}.
+     */
+    public <T> CompletionStage<T> time(String prefix, Supplier<CompletionStage<T>> operation, String... labels) {
+        var inFlight = level(prefix + "_in_flight", "Operations in progress", labels);
+        inFlight.incrementAndGet();
+        var start = System.nanoTime();
+
+        CompletionStage<T> result;
+        try {
+            result = operation.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedStage(e);
+        }
+
+        return result.whenComplete((__, error) -> {
+            inFlight.decrementAndGet();
+            var seconds = (System.nanoTime() - start) / 1e9;
+            observe(prefix + "_duration_seconds", "Duration of the operations", LATENCY_BUCKETS, seconds, labels);
+            if (error != null)
+                increment(prefix + "_errors_total", "Failed operations by cause", withLabel(labels, "cause", cause(error)));
+        });
+    }
+
+    private static String cause(Throwable error) {
+        var cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) cause = cause.getCause();
+        return cause.getClass().getSimpleName();
+    }
+
+    private static String[] withLabel(String[] labels, String name, String value) {
+        var result = Arrays.copyOf(labels, labels.length + 2);
+        result[labels.length] = name;
+        result[labels.length + 1] = value;
+        return result;
+    }
+
+    private void describe(String name, String description, String type) {
+        help.putIfAbsent(name, description);
+        types.putIfAbsent(name, type);
+    }
+
+    private static Key key(String name, String... labels) {
+        if (labels.length == 0) return new Key(name, "");
+        var rendered = new StringBuilder("{");
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (i > 0) rendered.append(',');
+            rendered.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return new Key(name, rendered.append('}').toString());
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    // Extra label appended to the labels of a histogram line
+    private static String bucketLabels(String labels, String le) {
+        var bucket = "le=\"" + le + "\"";
+        return labels.isEmpty() ? "{" + bucket + "}" : labels.substring(0, labels.length() - 1) + "," + bucket + "}";
+    }
+
+    private static String format(double value) {
+        if (Double.isInfinite(value)) return value > 0 ? "+Inf" : "-Inf";
+        return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    /**
+     * All metrics in the Prometheus text exposition format (version 0.0.4).
+     */
+    public String scrape() {
+        var lines = new TreeMap<String, StringBuilder>();
+        counters.forEach((key, value) -> line(lines, key.name(), key.name() + key.labels() + " " + value.sum()));
+        levels.forEach((key, value) -> line(lines, key.name(), key.name() + key.labels() + " " + value.get()));
+        gauges.forEach((key, value) -> line(lines, key.name(), key.name() + key.labels() + " " + format(value.getAsDouble())));
+        histograms.forEach((key, histogram) -> {
+            for (int i = 0; i < histogram.buckets.length; i++)
+                line(lines, key.name(), key.name() + "_bucket" + bucketLabels(key.labels(), format(histogram.buckets[i])) + " " + histogram.counts[i].sum());
+            line(lines, key.name(), key.name() + "_bucket" + bucketLabels(key.labels(), "+Inf") + " " + histogram.count.sum());
+            line(lines, key.name(), key.name() + "_sum" + key.labels() + " " + format(histogram.sum.sum()));
+            line(lines, key.name(), key.name() + "_count" + key.labels() + " " + histogram.count.sum());
+        });
+
+        var text = new StringBuilder();
+        lines.forEach((name, body) -> text
+                .append("# HELP ").append(name).append(' ').append(help.get(name)).append('\n')
+                .append("# TYPE ").append(name).append(' ').append(types.get(name)).append('\n')
+                .append(body));
+        return text.toString();
+    }
+
+    private static void line(Map<String, StringBuilder> lines, String name, String line) {
+        lines.computeIfAbsent(name, __ -> new StringBuilder()).append(line).append('\n');
+    }
+}
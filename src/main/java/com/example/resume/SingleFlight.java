@@ -0,0 +1,58 @@
+package com.example.resume;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls: while a call for a key is in flight, other calls for the
+ * same key get its outcome instead of starting their own. The key is forgotten as soon as the call
+ * completes, so results are not cached and failures are not remembered.
+ * <p>
+ * Executed and coalesced calls are counted in {@code single_flight_calls_total}, by operation.
+ */
+public class SingleFlight<K> {
+
+    private final String operation;
+    private final Metrics metrics;
+    private final ConcurrentHashMap<K, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlight(String operation, Metrics metrics) {
+        this.operation = operation;
+        this.metrics = metrics;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> CompletionStage<V> apply(K key, Supplier<CompletionStage<V>> call) {
+        var created = new CompletableFuture<V>();
+        var existing = (CompletableFuture<V>) inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            count("coalesced");
+            // a copy: a caller completing its stage does not affect the others
+            return existing.copy();
+        }
+
+        count("executed");
+        CompletionStage<V> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedStage(e);
+        }
+        result.whenComplete((value, error) -> {
+            inFlight.remove(key, created);
+            if (error != null) created.completeExceptionally(error);
+            else created.complete(value);
+        });
+        return created.copy();
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private void count(String outcome) {
+        metrics.increment("single_flight_calls_total", "Calls executed, or coalesced with an identical call in flight", "operation", operation, "outcome", outcome);
+    }
+}
@@ -1,12 +1,22 @@
 package com.example.resume;
 
+import akka.Done;
 import akka.util.ByteString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class Utils {
 
@@ -24,6 +34,35 @@ public class Utils {
         return ByteString.fromArray(readBytes(path));
     }
 
+    /**
+     * Hex encoded SHA-256 of the bytes followed by the given qualifiers (e.g. the instructions used to process them).
+     * The bytes are digested buffer by buffer, without copying the ByteString.
+     */
+    public static String sha256(ByteString bytes, String... qualifiers) {
+        var digest = sha256();
+        bytes.getByteBuffers().forEach(digest::update);
+        for (var qualifier : qualifiers) {
+            digest.update((byte) 0);
+            if (qualifier != null) digest.update(qualifier.getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Completes after the given duration, without holding a thread meanwhile
+    public static CompletionStage<Done> delay(ScheduledExecutorService scheduler, Duration duration) {
+        var done = new CompletableFuture<Done>();
+        scheduler.schedule(() -> done.complete(Done.done()), duration.toMillis(), TimeUnit.MILLISECONDS);
+        return done;
+    }
+
     public static void sleep(int ms) {
         try {
             Thread.sleep(ms);
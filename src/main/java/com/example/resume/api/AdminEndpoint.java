@@ -0,0 +1,50 @@
+package com.example.resume.api;
+
+import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.Get;
+import akka.javasdk.annotations.http.HttpEndpoint;
+import akka.javasdk.http.AbstractHttpEndpoint;
+import com.example.resume.application.AdmissionScheduler;
+import com.example.resume.application.DocumentParser;
+import com.example.resume.domain.AdmissionStats;
+import com.example.resume.domain.CacheStats;
+import com.example.resume.domain.LimiterStats;
+import com.example.resume.repository.GeminiService;
+import com.example.resume.repository.LLamaIndexService;
+
+import java.util.List;
+
+/**
+ * Statistics of the caches, rate limiters and admission of this node, for the services of the project only.
+ */
+@Acl(allow = @Acl.Matcher(service = "*"))
+@HttpEndpoint("/admin")
+public class AdminEndpoint extends AbstractHttpEndpoint {
+
+    private final DocumentParser documentParser;
+    private final LLamaIndexService llama;
+    private final GeminiService gemini;
+    private final AdmissionScheduler admission;
+
+    public AdminEndpoint(DocumentParser documentParser, LLamaIndexService llama, GeminiService gemini, AdmissionScheduler admission) {
+        this.documentParser = documentParser;
+        this.llama = llama;
+        this.gemini = gemini;
+        this.admission = admission;
+    }
+
+    @Get("/caches")
+    public List<CacheStats> caches() {
+        return List.of(documentParser.stats());
+    }
+
+    @Get("/rate-limiters")
+    public List<LimiterStats> rateLimiters() {
+        return List.of(llama.limiter().stats(), gemini.limiter().stats());
+    }
+
+    @Get("/admission")
+    public List<AdmissionStats> admission() {
+        return admission.stats();
+    }
+}
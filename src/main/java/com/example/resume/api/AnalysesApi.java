@@ -0,0 +1,31 @@
+package com.example.resume.api;
+
+import com.example.resume.application.ResumeStatusView;
+import com.example.resume.domain.Answer;
+import com.example.resume.domain.StepDuration;
+
+import java.time.Instant;
+import java.util.List;
+
+public record AnalysesApi(List<AnalysisApi> analyses, String nextPageToken, boolean hasMore) {
+
+    public record AnalysisApi(
+            String id,
+            String status,
+            String batchId,
+            Boolean resumeIsAvailable,
+            Boolean applicationFormIsAvailable,
+            List<Answer> answers,
+            Instant startedAt,
+            Instant updatedAt,
+            List<StepDuration> stepDurations) {}
+
+    public static AnalysesApi toApi(ResumeStatusView.StatusPage page) {
+        var analyses = page.statuses().stream()
+                .map(status -> new AnalysisApi(status.id(), status.status(), status.batchId(),
+                        status.resumeAvailable(), status.applicationFormAvailable(), status.answers(),
+                        status.startedAt(), status.updatedAt(), status.stepDurations()))
+                .toList();
+        return new AnalysesApi(analyses, page.nextPageToken(), page.hasMore());
+    }
+}
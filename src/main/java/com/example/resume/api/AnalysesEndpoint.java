@@ -0,0 +1,80 @@
+package com.example.resume.api;
+
+import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.Get;
+import akka.javasdk.annotations.http.HttpEndpoint;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.http.AbstractHttpEndpoint;
+import akka.javasdk.http.HttpException;
+import com.example.resume.application.ResumeStatusView;
+import com.example.resume.domain.ResumeAnalysisState;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Listing of the analyses for dashboards, served by {@link ResumeStatusView}: the workflows are not read.
+ * <p>
+ * {@code GET /analyses?status=ANSWERS_GENERATED&since=2026-01-01T00:00:00Z} lists by status, most recently
+ * changed first; {@code GET /analyses?batchId=...} lists the analyses of a batch. Pages hold {@code pageSize}
+ * analyses (50 by default); the next one is requested with the {@code pageToken} of the previous.
+ */
+@Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
+@HttpEndpoint("/analyses")
+public class AnalysesEndpoint extends AbstractHttpEndpoint {
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final ComponentClient componentClient;
+
+    public AnalysesEndpoint(ComponentClient componentClient) {
+        this.componentClient = componentClient;
+    }
+
+    @Get
+    public CompletionStage<AnalysesApi> list() {
+        var params = requestContext().queryParams();
+        var pageToken = params.getString("pageToken").orElse("");
+        var pageSize = pageSize(params.getString("pageSize").orElse(null));
+
+        var batchId = params.getString("batchId");
+        if (batchId.isPresent())
+            return componentClient.forView()
+                    .method(ResumeStatusView::byBatch)
+                    .invokeAsync(new ResumeStatusView.ByBatchQuery(batchId.get(), pageToken, pageSize))
+                    .thenApply(AnalysesApi::toApi);
+
+        var status = params.getString("status")
+                .orElseThrow(() -> HttpException.badRequest("Either status or batchId is required"));
+        if (Arrays.stream(ResumeAnalysisState.StateEnum.values()).noneMatch(value -> value.name().equals(status)))
+            throw HttpException.badRequest("Unknown status " + status);
+
+        return componentClient.forView()
+                .method(ResumeStatusView::byStatus)
+                .invokeAsync(new ResumeStatusView.ByStatusQuery(status, since(params.getString("since").orElse(null)), pageToken, pageSize))
+                .thenApply(AnalysesApi::toApi);
+    }
+
+    private static int pageSize(String value) {
+        if (value == null) return DEFAULT_PAGE_SIZE;
+        try {
+            var size = Integer.parseInt(value);
+            if (size < 1 || size > MAX_PAGE_SIZE) throw HttpException.badRequest("pageSize must be between 1 and " + MAX_PAGE_SIZE);
+            return size;
+        } catch (NumberFormatException e) {
+            throw HttpException.badRequest("pageSize must be a number");
+        }
+    }
+
+    private static Instant since(String value) {
+        if (value == null) return Instant.EPOCH;
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw HttpException.badRequest("since must be an ISO-8601 instant, e.g. 2026-01-01T00:00:00Z");
+        }
+    }
+}
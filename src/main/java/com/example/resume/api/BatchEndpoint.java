@@ -0,0 +1,82 @@
+package com.example.resume.api;
+
+import akka.http.javadsl.model.HttpResponse;
+import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.Get;
+import akka.javasdk.annotations.http.HttpEndpoint;
+import akka.javasdk.annotations.http.Post;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.http.AbstractHttpEndpoint;
+import akka.javasdk.http.HttpException;
+import akka.javasdk.http.HttpResponses;
+import com.example.resume.application.BatchScreeningWorkflow;
+import com.example.resume.domain.BatchRequest;
+import com.example.resume.domain.BlobRef;
+import com.example.resume.repository.BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Bulk screening: one application form against many resumes, all previously uploaded to {@code /blobs}.
+ */
+@Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
+@HttpEndpoint("/batches")
+public class BatchEndpoint extends AbstractHttpEndpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchEndpoint.class);
+
+    private static final String APPLICATION_PDF = "application/pdf";
+
+    private final ComponentClient componentClient;
+    private final BlobStore blobStore;
+
+    public BatchEndpoint(ComponentClient componentClient, BlobStore blobStore) {
+        this.componentClient = componentClient;
+        this.blobStore = blobStore;
+    }
+
+    @Post("/{id}")
+    public CompletionStage<HttpResponse> start(String id, BatchRequest request) {
+        logger.info("Starting batch id [{}] with {} resumes.", id, request.resumes() == null ? 0 : request.resumes().size());
+        return validate(request)
+                .thenCompose(__ -> componentClient.forWorkflow(id)
+                        .method(BatchScreeningWorkflow::start)
+                        .invokeAsync(request))
+                .thenApply(__ -> HttpResponses.created(id));
+    }
+
+    // The references come from the client: check them before the workflows read them
+    private CompletionStage<Void> validate(BatchRequest request) {
+        if (request.applicationForm() == null) throw HttpException.badRequest("The application form is missing");
+        if (request.resumes() == null || request.resumes().isEmpty()) throw HttpException.badRequest("The resumes are missing");
+
+        var refs = new ArrayList<BlobRef>();
+        refs.add(request.applicationForm());
+        refs.addAll(request.resumes());
+        for (var ref : refs) {
+            if (ref == null || !BlobRef.isDigest(ref.digest()))
+                throw HttpException.badRequest("Invalid blob digest " + (ref == null ? null : ref.digest()));
+            if (!APPLICATION_PDF.equals(ref.contentType()))
+                throw HttpException.badRequest("Blob " + ref.digest() + " is not a " + APPLICATION_PDF);
+        }
+
+        var checks = refs.stream()
+                .map(ref -> blobStore.exists(ref).thenAccept(exists -> {
+                    if (!exists) throw HttpException.badRequest("Unknown blob " + ref.digest() + ", upload it to /blobs first");
+                }).toCompletableFuture())
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(checks);
+    }
+
+    @Get("/{id}")
+    public CompletionStage<BatchStatusApi> getStatus(String id) {
+        return componentClient.forWorkflow(id)
+                .method(BatchScreeningWorkflow::getStatus)
+                .invokeAsync()
+                .thenApply(BatchStatusApi::toApi);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.resume.api;
+
+import com.example.resume.domain.BatchState;
+
+import java.util.List;
+
+public record BatchStatusApi(
+        String status,
+        int parallelism,
+        int total,
+        long pending,
+        long running,
+        long succeeded,
+        long failed,
+        List<String> workflowIds
+) {
+    public static BatchStatusApi toApi(BatchState domain) {
+        return new BatchStatusApi(
+                domain.state().name(),
+                domain.parallelism(),
+                domain.items().size(),
+                domain.count(BatchState.ItemStatus.PENDING),
+                domain.count(BatchState.ItemStatus.RUNNING),
+                domain.count(BatchState.ItemStatus.SUCCEEDED),
+                domain.count(BatchState.ItemStatus.FAILED),
+                domain.items().stream().map(BatchState.Item::workflowId).toList()
+        );
+    }
+}
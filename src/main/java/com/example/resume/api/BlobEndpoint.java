@@ -0,0 +1,43 @@
+package com.example.resume.api;
+
+import akka.http.javadsl.model.HttpRequest;
+import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.HttpEndpoint;
+import akka.javasdk.annotations.http.Post;
+import akka.javasdk.http.AbstractHttpEndpoint;
+import akka.stream.Materializer;
+import com.example.resume.domain.BlobRef;
+import com.example.resume.repository.BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Uploads PDFs to the blob store, to reference them later (e.g. in a batch).
+ */
+@Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
+@HttpEndpoint("/blobs")
+public class BlobEndpoint extends AbstractHttpEndpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobEndpoint.class);
+
+    private final BlobStore blobStore;
+    private final PdfUpload.Limits uploadLimits;
+    private final Materializer materializer;
+
+    public BlobEndpoint(BlobStore blobStore, PdfUpload.Limits uploadLimits, Materializer materializer) {
+        this.blobStore = blobStore;
+        this.uploadLimits = uploadLimits;
+        this.materializer = materializer;
+    }
+
+    @Post
+    public CompletionStage<BlobRef> upload(HttpRequest request) {
+        return PdfUpload.store(request, blobStore, uploadLimits, materializer)
+                .thenApply(ref -> {
+                    logger.info("Received PDF {} [size={}]", ref.digest(), ref.size());
+                    return ref;
+                });
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.resume.api;
+
+import com.example.resume.domain.FormTemplate;
+import com.example.resume.domain.Question;
+
+import java.util.List;
+
+public record FormTemplateApi(String digest, List<String> fields, boolean pinned) {
+
+    public static FormTemplateApi toApi(String digest, FormTemplate domain) {
+        return new FormTemplateApi(
+                digest,
+                domain.questions().stream().map(Question::field).toList(),
+                domain.pinned()
+        );
+    }
+}
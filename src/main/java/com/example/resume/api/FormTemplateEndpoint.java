@@ -0,0 +1,77 @@
+package com.example.resume.api;
+
+import akka.http.javadsl.model.*;
+import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.Get;
+import akka.javasdk.annotations.http.HttpEndpoint;
+import akka.javasdk.annotations.http.Post;
+import akka.javasdk.annotations.http.Put;
+import akka.javasdk.http.AbstractHttpEndpoint;
+import akka.javasdk.http.HttpException;
+import com.example.resume.application.FormTemplates;
+import com.example.resume.domain.BlobRef;
+import com.example.resume.domain.Question;
+import com.example.resume.domain.ResumeFields;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Registry of application form question sets, to prepare them ahead of bulk screening runs.
+ * Forms are identified by the SHA-256 of their PDF (e.g. the output of {@code sha256sum form.pdf}).
+ * <p>
+ * Pinned question sets are used by every screening of their form: only the services of the project may change them.
+ */
+@Acl(allow = @Acl.Matcher(service = "*"))
+@HttpEndpoint("/form-templates")
+public class FormTemplateEndpoint extends AbstractHttpEndpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(FormTemplateEndpoint.class);
+
+    private final static ContentType APPLICATION_PDF = ContentTypes.create(MediaTypes.APPLICATION_PDF);
+
+    private final FormTemplates formTemplates;
+
+    public FormTemplateEndpoint(FormTemplates formTemplates) {
+        this.formTemplates = formTemplates;
+    }
+
+    // Generate (or reuse) the questions of the uploaded form and pin them
+    @Post
+    public CompletionStage<FormTemplateApi> register(HttpEntity.Strict body) {
+        if (!body.getContentType().equals(APPLICATION_PDF))
+            throw HttpException.badRequest("You must provide a " + APPLICATION_PDF);
+
+        var bytes = body.getData();
+        var digest = FormTemplates.digest(bytes);
+        logger.info("Registering application form {} [size={}]", digest, bytes.length());
+
+        return formTemplates.questionsFor(bytes)
+                .thenCompose(questions -> formTemplates.pin(digest, questions))
+                .thenApply(template -> FormTemplateApi.toApi(digest, template));
+    }
+
+    // Pin a question set, e.g. a reviewed one
+    @Put("/{digest}")
+    public CompletionStage<FormTemplateApi> pin(String digest, ResumeFields fields) {
+        if (!BlobRef.isDigest(digest))
+            throw HttpException.badRequest("Invalid form digest " + digest + ": expected the lowercase hex SHA-256 of the PDF");
+        if (fields == null || fields.fields() == null || fields.fields().isEmpty())
+            throw HttpException.badRequest("Missing mandatory data. Please provide at least one field.");
+
+        var questions = fields.fields().stream().map(Question::new).toList();
+        return formTemplates.pin(digest, questions)
+                .thenApply(template -> FormTemplateApi.toApi(digest, template));
+    }
+
+    @Get("/{digest}")
+    public CompletionStage<FormTemplateApi> get(String digest) {
+        return formTemplates.get(digest)
+                .thenApply(template -> {
+                    if (template.questions() == null)
+                        throw HttpException.notFound();
+                    return FormTemplateApi.toApi(digest, template);
+                });
+    }
+}
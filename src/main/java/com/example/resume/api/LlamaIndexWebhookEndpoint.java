@@ -0,0 +1,79 @@
+package com.example.resume.api;
+
+import akka.http.javadsl.model.HttpResponse;
+import akka.http.javadsl.model.StatusCodes;
+import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.HttpEndpoint;
+import akka.javasdk.annotations.http.Post;
+import akka.javasdk.http.AbstractHttpEndpoint;
+import akka.javasdk.http.HttpException;
+import akka.javasdk.http.HttpResponses;
+import com.example.resume.application.LlamaIndexJobs;
+import com.example.resume.repository.JobPoller;
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.typesafe.config.Config;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Completion notifications of LlamaIndex parse jobs, sent to the {@code webhook_url} of their upload.
+ * <p>
+ * The notification is recorded in the {@link LlamaIndexJobs}, whichever node receives it: the {@link JobPoller}
+ * awaiting the job on any node reads it there and fetches the job at once, which resumes the workflow step
+ * parsing the document. The notifications must carry the configured token: without one, none is accepted.
+ */
+@Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
+@HttpEndpoint("/llamaindex")
+public class LlamaIndexWebhookEndpoint extends AbstractHttpEndpoint {
+
+    public record Settings(boolean enabled, String url, String token) {
+        public static Settings fromConfig(Config config) {
+            var settings = new Settings(config.getBoolean("enabled"), config.getString("url"), config.getString("token"));
+            // the endpoint is public: unauthenticated notifications would let anyone trigger job fetches
+            if (settings.enabled() && settings.token().isBlank())
+                throw new IllegalArgumentException("llamaindex-webhook.token is required when the webhook is enabled");
+            return settings;
+        }
+
+        // URL given to LlamaIndex on upload, with the token the notifications are checked against
+        public String callbackUrl() {
+            return url + "?token=" + URLEncoder.encode(token, StandardCharsets.UTF_8);
+        }
+
+        boolean accepts(String received) {
+            return enabled && !token.isBlank()
+                    && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), received.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public record Notification(@JsonAlias({"job_id", "id"}) UUID jobId, String status) {}
+
+    private final LlamaIndexJobs jobs;
+    private final JobPoller poller;
+    private final Settings settings;
+
+    public LlamaIndexWebhookEndpoint(LlamaIndexJobs jobs, JobPoller poller, Settings settings) {
+        this.jobs = jobs;
+        this.poller = poller;
+        this.settings = settings;
+    }
+
+    @Post("/webhook")
+    public CompletionStage<HttpResponse> notifyCompleted(Notification notification) {
+        if (!settings.accepts(requestContext().queryParams().getString("token").orElse("")))
+            throw HttpException.error(StatusCodes.FORBIDDEN, "Invalid token");
+        if (notification.jobId() == null)
+            throw HttpException.badRequest("The job id is missing");
+
+        // acknowledged once recorded, so LlamaIndex retries the notifications that were not;
+        // a job awaited on this node is fetched without waiting for the next read
+        return jobs.notifyCompleted(notification.jobId()).thenApply(done -> {
+            poller.notifyCompleted(notification.jobId());
+            return HttpResponses.ok();
+        });
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.resume.api;
+
+import akka.http.javadsl.model.ContentTypes;
+import akka.http.javadsl.model.HttpResponse;
+import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.Get;
+import akka.javasdk.annotations.http.HttpEndpoint;
+import akka.javasdk.http.AbstractHttpEndpoint;
+import com.example.resume.Metrics;
+
+/**
+ * Step and provider metrics in the Prometheus text format, to be scraped by a service of the project.
+ */
+@Acl(allow = @Acl.Matcher(service = "*"))
+@HttpEndpoint("/metrics")
+public class MetricsEndpoint extends AbstractHttpEndpoint {
+
+    private final Metrics metrics;
+
+    public MetricsEndpoint(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Get
+    public HttpResponse scrape() {
+        return HttpResponse.create().withEntity(ContentTypes.TEXT_PLAIN_UTF8, metrics.scrape());
+    }
+}
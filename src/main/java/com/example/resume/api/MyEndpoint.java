@@ -9,14 +9,23 @@ import akka.javasdk.client.ComponentClient;
 import akka.javasdk.http.AbstractHttpEndpoint;
 import akka.javasdk.http.HttpException;
 import akka.javasdk.http.HttpResponses;
+import akka.stream.Materializer;
+import com.example.resume.application.AdmissionScheduler;
+import com.example.resume.application.PartialAnswersEntity;
 import com.example.resume.application.ResumeAnalysisWorkflow;
-import com.example.resume.domain.ApplicationFormBytes;
-import com.example.resume.domain.ResumeBytes;
+import com.example.resume.domain.BlobRef;
+import com.example.resume.domain.Priority;
+import com.example.resume.domain.ResumeAnalysisState;
+import com.example.resume.repository.BlobStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
+import static com.example.resume.Utils.readByteString;
+
 @Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
 @HttpEndpoint("/my-workflow")
 public class MyEndpoint extends AbstractHttpEndpoint {
@@ -24,66 +33,106 @@ public class MyEndpoint extends AbstractHttpEndpoint {
     private static final Logger logger = LoggerFactory.getLogger(MyEndpoint.class);
 
     private final ComponentClient componentClient;
+    private final BlobStore blobStore;
+    private final PdfUpload.Limits uploadLimits;
+    private final Materializer materializer;
+    private final AdmissionScheduler admission;
 
-    public MyEndpoint(ComponentClient componentClient) {
+    public MyEndpoint(ComponentClient componentClient, BlobStore blobStore, PdfUpload.Limits uploadLimits, Materializer materializer,
+                      AdmissionScheduler admission) {
         this.componentClient = componentClient;
+        this.blobStore = blobStore;
+        this.uploadLimits = uploadLimits;
+        this.materializer = materializer;
+        this.admission = admission;
     }
 
     @Post("/{id}/setup")
     public CompletionStage<HttpResponse> setup(String id) {
         logger.info("Setup of workflow id [{}].", id);
-        return componentClient.forWorkflow(id)
-                .method(ResumeAnalysisWorkflow::setup).invokeAsync()
+        var applicationForm = readByteString(Path.of("/Users/nicola/Downloads/fake_application_form.pdf"));
+        var resume = readByteString(Path.of("/Users/nicola/Downloads/fake_resume.pdf"));
+        return blobStore.put(applicationForm, APPLICATION_PDF.toString())
+                .thenCompose(ref -> componentClient.forWorkflow(id)
+                        .method(ResumeAnalysisWorkflow::acceptApplicationForm).invokeAsync(ref))
+                .thenCompose(__ -> blobStore.put(resume, APPLICATION_PDF.toString()))
+                .thenCompose(ref -> componentClient.forWorkflow(id)
+                        .method(ResumeAnalysisWorkflow::acceptResume).invokeAsync(ref))
                 .thenApply(__ -> HttpResponses.created(id).addHeader(HttpHeader.parse("Location", id)));
     }
 
     private final static ContentType APPLICATION_PDF = ContentTypes.create(MediaTypes.APPLICATION_PDF);
 
+    // The body is streamed to the blob store: memory per upload is bounded by the chunk size, not the file size
     @Post("/{id}/application-form")
-    public CompletionStage<HttpResponse> uploadApplicationForm(String id, HttpEntity.Strict body) {
-        if (!body.getContentType().equals(APPLICATION_PDF))
-            throw HttpException.badRequest("You must provide a " + APPLICATION_PDF);
-        else {
-            var bytes = body.getData();
-            logger.info("Received application form PDF [size={}]", bytes.length());
-
-            return componentClient.forWorkflow(id)
-                    .method(ResumeAnalysisWorkflow::acceptApplicationForm)
-                    .invokeAsync(new ApplicationFormBytes(bytes))
-                    .thenApply(__ -> HttpResponses.ok("Application form PDF received"));
-        }
+    public CompletionStage<HttpResponse> uploadApplicationForm(String id, HttpRequest request) {
+        return upload(request)
+                .thenCompose(ref -> {
+                    logger.info("Received application form PDF [size={}]", ref.size());
+                    return componentClient.forWorkflow(id)
+                            .method(ResumeAnalysisWorkflow::acceptApplicationForm)
+                            .invokeAsync(ref);
+                })
+                .thenApply(__ -> HttpResponses.ok("Application form PDF received"));
     }
 
     @Post("/{id}/resume")
-    public CompletionStage<HttpResponse> uploadResume(String id, HttpEntity.Strict body) {
-        if (!body.getContentType().equals(APPLICATION_PDF))
-            throw HttpException.badRequest("You must provide a " + APPLICATION_PDF);
-        else {
-            var bytes = body.getData();
-            logger.info("Received resume PDF [size={}]", bytes.length());
-
-            return componentClient.forWorkflow(id)
-                    .method(ResumeAnalysisWorkflow::acceptResume)
-                    .invokeAsync(new ResumeBytes(bytes))
-                    .thenApply(__ -> HttpResponses.ok("Resume PDF received"));
-        }
+    public CompletionStage<HttpResponse> uploadResume(String id, HttpRequest request) {
+        return upload(request)
+                .thenCompose(ref -> {
+                    logger.info("Received resume PDF [size={}]", ref.size());
+                    return componentClient.forWorkflow(id)
+                            .method(ResumeAnalysisWorkflow::acceptResume)
+                            .invokeAsync(ref);
+                })
+                .thenApply(__ -> HttpResponses.ok("Resume PDF received"));
+    }
+
+    private CompletionStage<BlobRef> upload(HttpRequest request) {
+        return PdfUpload.store(request, blobStore, uploadLimits, materializer);
     }
 
+    // Single checks get the configured default priority (interactive) unless ?priority=interactive|standard|bulk
     @Post("/{id}/start")
     public CompletionStage<HttpResponse> start(String id) {
-        logger.info("Starting workflow id [{}].", id);
+        var priority = requestContext().queryParams().getString("priority")
+                .map(MyEndpoint::priority)
+                .orElse(admission.defaultPriority());
+        logger.info("Starting workflow id [{}] with priority {}.", id, priority);
         return componentClient.forWorkflow(id)
-                .method(ResumeAnalysisWorkflow::start).invokeAsync()
+                .method(ResumeAnalysisWorkflow::start).invokeAsync(priority)
                 .thenApply(__ -> HttpResponses.ok(id));
     }
 
+    private static Priority priority(String value) {
+        try {
+            return Priority.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw HttpException.badRequest("Unknown priority " + value);
+        }
+    }
+
+    // Pushes the status on every change, until the analysis has finished or failed.
+    // Served from ResumeStatusView: watchers cost nothing to the workflow.
+    @Get("/{id}/events")
+    public HttpResponse events(String id) {
+        logger.info("Streaming status events for workflow id [{}].", id);
+        return HttpResponses.serverSentEvents(StatusEvents.of(componentClient, id));
+    }
+
     @Get("/{id}")
     public CompletionStage<HttpResponse> getStatus(String id) {
         logger.info("Getting status for workflow id [{}].", id);
         return componentClient.forWorkflow(id)
                 .method(ResumeAnalysisWorkflow::getStatus)
                 .invokeAsync()
-                .thenApply(StatusApi::toApi)
+                .thenCompose(state -> state.state() != ResumeAnalysisState.StateEnum.DOCUMENTS_PROCESSED
+                        ? CompletableFuture.completedStage(StatusApi.toApi(state))
+                        // answering: the answers published so far
+                        : componentClient.forKeyValueEntity(id)
+                                .method(PartialAnswersEntity::get)
+                                .invokeAsync()
+                                .thenApply(partial -> StatusApi.toApi(state, partial.answers())))
                 .thenApply(HttpResponses::ok);
     }
 }
@@ -0,0 +1,116 @@
+package com.example.resume.api;
+
+import akka.NotUsed;
+import akka.http.javadsl.model.*;
+import akka.javasdk.http.HttpException;
+import akka.japi.function.Function;
+import akka.stream.Materializer;
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+import com.example.resume.domain.BlobRef;
+import com.example.resume.repository.BlobStore;
+import com.typesafe.config.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Streaming validation of uploaded PDFs.
+ * <p>
+ * Requests with a wrong content type or a declared length above the limit are rejected before
+ * reading the body. The body is then checked while it flows: the first bytes must be the PDF
+ * magic number, whole by the end of the body, and the total size must stay within the limit. Chunks are re-sliced to at most
+ * {@code chunkSize} bytes, so downstream stages never hold more than that per element.
+ */
+public final class PdfUpload {
+
+    private final static ContentType APPLICATION_PDF = ContentTypes.create(MediaTypes.APPLICATION_PDF);
+    private static final ByteString PDF_MAGIC = ByteString.fromString("%PDF-");
+
+    public record Limits(long maxSize, int chunkSize) {
+        public static Limits fromConfig(Config config) {
+            return new Limits(config.getBytes("max-size"), Math.toIntExact(config.getBytes("chunk-size")));
+        }
+    }
+
+    private PdfUpload() {}
+
+    /**
+     * Streams the validated body of the request into the blob store.
+     */
+    public static CompletionStage<BlobRef> store(HttpRequest request, BlobStore blobStore, Limits limits, Materializer materializer) {
+        try {
+            return blobStore.put(validated(request.entity(), limits), APPLICATION_PDF.toString(), materializer);
+        } catch (HttpException e) {
+            // rejected before reading the body
+            request.discardEntityBytes(materializer);
+            throw e;
+        }
+    }
+
+    public static Source<ByteString, NotUsed> validated(HttpEntity entity, Limits limits) {
+        if (!entity.getContentType().equals(APPLICATION_PDF))
+            throw HttpException.badRequest("You must provide a " + APPLICATION_PDF);
+
+        var declaredLength = entity.getContentLengthOption();
+        if (declaredLength.isPresent() && declaredLength.getAsLong() > limits.maxSize())
+            throw tooLarge(limits);
+
+        // the end of the body is marked by an empty element, for the check of a body shorter than the magic number
+        return entity.getDataBytes()
+                .map(Optional::of)
+                .concat(Source.single(Optional.<ByteString>empty()))
+                .statefulMapConcat(() -> new Validator(limits))
+                .mapMaterializedValue(__ -> NotUsed.getInstance());
+    }
+
+    private static HttpException tooLarge(Limits limits) {
+        return HttpException.error(StatusCodes.PAYLOAD_TOO_LARGE, "The PDF exceeds the maximum size of " + limits.maxSize() + " bytes");
+    }
+
+    private static final class Validator implements Function<Optional<ByteString>, Iterable<ByteString>> {
+
+        private final Limits limits;
+        private long received = 0;
+        private ByteString header = ByteString.emptyByteString();
+
+        Validator(Limits limits) {
+            this.limits = limits;
+        }
+
+        @Override
+        public Iterable<ByteString> apply(Optional<ByteString> element) {
+            if (element.isEmpty()) {
+                // empty, or a prefix of the magic number only
+                if (header.length() < PDF_MAGIC.length())
+                    throw HttpException.badRequest("The content is not a PDF");
+                return List.of();
+            }
+
+            var chunk = element.get();
+            received += chunk.length();
+            if (received > limits.maxSize())
+                throw tooLarge(limits);
+
+            // the magic number may be split across the first chunks
+            if (header.length() < PDF_MAGIC.length()) {
+                header = header.concat(chunk.take(PDF_MAGIC.length() - header.length()));
+                if (!PDF_MAGIC.take(header.length()).equals(header))
+                    throw HttpException.badRequest("The content is not a PDF");
+            }
+
+            return slices(chunk, limits.chunkSize());
+        }
+    }
+
+    private static List<ByteString> slices(ByteString chunk, int chunkSize) {
+        if (chunk.length() <= chunkSize) return List.of(chunk);
+
+        var slices = new ArrayList<ByteString>(chunk.length() / chunkSize + 1);
+        for (int from = 0; from < chunk.length(); from += chunkSize)
+            slices.add(chunk.slice(from, Math.min(from + chunkSize, chunk.length())));
+        return slices;
+    }
+}
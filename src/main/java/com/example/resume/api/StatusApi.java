@@ -9,15 +9,23 @@ public record StatusApi(
             Boolean resumeIsAvailable,
             Boolean applicationFormIsAvailable,
             String status,
+            // Position among the waiting analyses of the same priority, null once admitted
+            Integer queuePosition,
             // TODO: create AnswerApi record
             List<Answer> answers
     ) {
         public static StatusApi toApi(ResumeAnalysisState domain) {
+            return toApi(domain, domain.answers());
+        }
+
+        // Answers published before the workflow stored them, while the questions are being answered
+        public static StatusApi toApi(ResumeAnalysisState domain, List<Answer> answers) {
             return new StatusApi(
-                    domain.resumeBytes() != null,
-                    domain.applicationFormBytes() != null,
+                    domain.resumeAvailable(),
+                    domain.applicationFormAvailable(),
                     domain.state().name(),
-                    domain.answers()
+                    domain.queuePosition(),
+                    answers
             );
         }
     }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.example.resume.api;
+
+import akka.NotUsed;
+import akka.japi.function.Function;
+import akka.javasdk.client.ComponentClient;
+import akka.stream.javadsl.Source;
+import com.example.resume.application.ResumeStatusView;
+import com.example.resume.domain.Answer;
+import com.example.resume.domain.ResumeAnalysisState.StateEnum;
+
+import java.util.List;
+
+/**
+ * Status of an analysis as a stream of {@link StatusApi}, one element per visible change, ending with the analysis.
+ * Built from the streaming queries of {@link ResumeStatusView}: the workflow is never read.
+ */
+final class StatusEvents {
+
+    private StatusEvents() {}
+
+    static Source<StatusApi, NotUsed> of(ComponentClient componentClient, String id) {
+        Source<Object, NotUsed> statuses = componentClient.forView()
+                .stream(ResumeStatusView::watchStatus)
+                .source(id)
+                .map(row -> row);
+        Source<Object, NotUsed> partialAnswers = componentClient.forView()
+                .stream(ResumeStatusView::watchPartialAnswers)
+                .source(id)
+                .map(row -> row);
+
+        return statuses.merge(partialAnswers)
+                .statefulMapConcat(Latest::new)
+                .takeWhile(status -> !terminal(status.status()), true);
+    }
+
+    private static boolean terminal(String status) {
+        return status.equals(StateEnum.FINISHED.name()) || status.equals(StateEnum.FAILED.name());
+    }
+
+    // Latest row of each query, emits the status when what a client sees has changed
+    private static final class Latest implements Function<Object, Iterable<StatusApi>> {
+
+        private ResumeStatusView.ResumeStatus status;
+        private List<Answer> partialAnswers = List.of();
+        private StatusApi emitted;
+
+        @Override
+        public Iterable<StatusApi> apply(Object update) {
+            if (update instanceof ResumeStatusView.ResumeStatus row) status = row;
+            else if (update instanceof ResumeStatusView.PartialAnswers row) partialAnswers = row.answers();
+            if (status == null) return List.of();
+
+            // answering: the answers published so far
+            var answers = status.status().equals(StateEnum.DOCUMENTS_PROCESSED.name()) ? partialAnswers : status.answers();
+            var current = new StatusApi(status.resumeAvailable(), status.applicationFormAvailable(), status.status(), status.queuePosition(), answers);
+            if (current.equals(emitted)) return List.of();
+            emitted = current;
+            return List.of(current);
+        }
+    }
+}
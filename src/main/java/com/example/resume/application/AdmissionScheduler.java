@@ -0,0 +1,235 @@
+package com.example.resume.application;
+
+import com.example.resume.Metrics;
+import com.example.resume.domain.Admission;
+import com.example.resume.domain.AdmissionStats;
+import com.example.resume.domain.Priority;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission of the analyses of this node to the provider calls, by priority class.
+ * <p>
+ * At most {@code maxConcurrent} admitted analyses run at once, and at most the {@code maxConcurrent} of
+ * their class. When a slot frees, the classes with waiting analyses share it by weight (stride scheduling):
+ * with weights 8 and 1, a bulk backlog gets one freed slot in nine while interactive checks are waiting,
+ * and every slot when they are not. Within a class, analyses are admitted in arrival order.
+ * <p>
+ * A workflow waits at most {@code maxWait} per call, then records its queue position and calls again,
+ * keeping its place. It holds its admission until {@link #release}, or at most {@code leaseTimeout}
+ * if it never releases it (e.g. it moved to another node): such leases are reclaimed every {@code maxWait}.
+ * <p>
+ * Analyses started without a priority get {@code defaultPriority}.
+ */
+public class AdmissionScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionScheduler.class);
+
+    public record ClassSettings(int weight, int maxConcurrent) {}
+
+    public record Settings(int maxConcurrent, Duration maxWait, Duration leaseTimeout, Priority defaultPriority,
+                           Map<Priority, ClassSettings> classes) {
+        public static Settings fromConfig(Config config) {
+            var classes = new EnumMap<Priority, ClassSettings>(Priority.class);
+            for (var priority : Priority.values()) {
+                var lane = config.getConfig("classes." + priority.name().toLowerCase());
+                classes.put(priority, new ClassSettings(lane.getInt("weight"), lane.getInt("max-concurrent")));
+            }
+            return new Settings(
+                    config.getInt("max-concurrent-workflows"),
+                    config.getDuration("max-wait"),
+                    config.getDuration("lease-timeout"),
+                    Priority.valueOf(config.getString("default-priority").toUpperCase()),
+                    classes);
+        }
+    }
+
+    private static final class Waiting {
+        final long enqueuedAt = System.nanoTime();
+        final CompletableFuture<Void> admitted = new CompletableFuture<>();
+        long awaitedAt = enqueuedAt;
+    }
+
+    private record Lease(Priority priority, long acquiredAt) {}
+
+    // Analyses of one class, guarded by the scheduler
+    private static final class Lane {
+        final ClassSettings settings;
+        final LinkedHashMap<String, Waiting> queue = new LinkedHashMap<>();
+        int running = 0;
+        // virtual time of the class: the class with the lowest one is admitted next
+        double pass = 0;
+        long admitted = 0;
+        long totalWaitNanos = 0;
+        long maxWaitNanos = 0;
+
+        Lane(ClassSettings settings) {
+            this.settings = settings;
+        }
+    }
+
+    private final Settings settings;
+    private final ScheduledExecutorService scheduler;
+    private final Metrics metrics;
+
+    // guarded by this
+    private final EnumMap<Priority, Lane> lanes = new EnumMap<>(Priority.class);
+    private final Map<String, Lease> leases = new HashMap<>();
+    private double virtualTime = 0;
+
+    public AdmissionScheduler(Settings settings, ScheduledExecutorService scheduler, Metrics metrics) {
+        this.settings = settings;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        settings.classes().forEach((priority, lane) -> lanes.put(priority, new Lane(lane)));
+        // a slot held by a workflow that never released it is reclaimed even when no workflow calls await
+        var tick = settings.maxWait().toMillis();
+        scheduler.scheduleWithFixedDelay(this::reclaim, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    public Priority defaultPriority() {
+        return settings.defaultPriority();
+    }
+
+    /**
+     * Completes when the workflow is admitted, or after {@code maxWait} with its position in the queue.
+     * Calling again keeps the place in the queue; an admitted workflow is admitted at once.
+     */
+    public CompletionStage<Admission> await(String workflowId, Priority priority) {
+        Waiting waiting;
+        synchronized (this) {
+            expire();
+            if (leases.containsKey(workflowId))
+                return CompletableFuture.completedStage(Admission.granted());
+
+            var lane = lanes.get(priority);
+            waiting = lane.queue.get(workflowId);
+            if (waiting == null) {
+                // an idle class starts from the current virtual time, it does not catch up on its idle period
+                if (lane.queue.isEmpty()) lane.pass = Math.max(lane.pass, virtualTime);
+                waiting = new Waiting();
+                lane.queue.put(workflowId, waiting);
+            }
+            waiting.awaitedAt = System.nanoTime();
+        }
+        drain();
+
+        var result = new CompletableFuture<Admission>();
+        waiting.admitted.thenRun(() -> result.complete(Admission.granted()));
+        scheduler.schedule(() -> {
+            if (!result.isDone()) result.complete(Admission.queued(position(workflowId, priority)));
+        }, settings.maxWait().toMillis(), TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    /**
+     * Frees the slot of the workflow, when it has ended. Does nothing if it holds none on this node.
+     */
+    public void release(String workflowId) {
+        synchronized (this) {
+            var lease = leases.remove(workflowId);
+            if (lease != null) lanes.get(lease.priority()).running--;
+            expire();
+        }
+        drain();
+    }
+
+    private void reclaim() {
+        try {
+            synchronized (this) {
+                expire();
+            }
+            drain();
+        } catch (RuntimeException e) {
+            // an exception would cancel the next ticks
+            logger.error("Unable to reclaim the expired admissions", e);
+        }
+    }
+
+    private synchronized int position(String workflowId, Priority priority) {
+        var position = 1;
+        for (var id : lanes.get(priority).queue.keySet()) {
+            if (id.equals(workflowId)) return position;
+            position++;
+        }
+        // admitted meanwhile
+        return 0;
+    }
+
+    private void drain() {
+        var admittedNow = new ArrayList<CompletableFuture<Void>>();
+
+        synchronized (this) {
+            while (leases.size() < settings.maxConcurrent()) {
+                Priority next = null;
+                for (var entry : lanes.entrySet()) {
+                    var lane = entry.getValue();
+                    if (lane.queue.isEmpty() || lane.running >= lane.settings.maxConcurrent()) continue;
+                    if (next == null || lane.pass < lanes.get(next).pass) next = entry.getKey();
+                }
+                if (next == null) break;
+
+                var lane = lanes.get(next);
+                var first = lane.queue.entrySet().iterator().next();
+                lane.queue.remove(first.getKey());
+                virtualTime = lane.pass;
+                lane.pass += 1.0 / Math.max(1, lane.settings.weight());
+                lane.running++;
+                leases.put(first.getKey(), new Lease(next, System.nanoTime()));
+
+                var waited = System.nanoTime() - first.getValue().enqueuedAt;
+                lane.admitted++;
+                lane.totalWaitNanos += waited;
+                lane.maxWaitNanos = Math.max(lane.maxWaitNanos, waited);
+                metrics.observe("admission_wait_seconds", "Wait of the analyses before admission", Metrics.LATENCY_BUCKETS,
+                        waited / 1e9, "priority", next.name().toLowerCase());
+                admittedNow.add(first.getValue().admitted);
+            }
+        }
+
+        // resume the workflows outside the lock
+        admittedNow.forEach(admitted -> admitted.complete(null));
+    }
+
+    // Leases never released, and waiting workflows that stopped calling (e.g. deleted, or moved to another node)
+    private void expire() {
+        var now = System.nanoTime();
+        var leaseTimeout = settings.leaseTimeout().toNanos();
+        var abandoned = settings.maxWait().toNanos() * 3;
+
+        var expired = leases.entrySet().iterator();
+        while (expired.hasNext()) {
+            var lease = expired.next();
+            if (now - lease.getValue().acquiredAt() > leaseTimeout) {
+                logger.warn("Admission of workflow {} not released after {}. Reclaiming it.", lease.getKey(), settings.leaseTimeout());
+                lanes.get(lease.getValue().priority()).running--;
+                expired.remove();
+            }
+        }
+        for (var lane : lanes.values())
+            lane.queue.values().removeIf(waiting -> now - waiting.awaitedAt > abandoned);
+    }
+
+    public synchronized List<AdmissionStats> stats() {
+        return lanes.keySet().stream().map(this::stats).toList();
+    }
+
+    public synchronized AdmissionStats stats(Priority priority) {
+        var lane = lanes.get(priority);
+        return new AdmissionStats(
+                priority,
+                lane.queue.size(),
+                lane.running,
+                lane.admitted,
+                lane.admitted == 0 ? 0 : lane.totalWaitNanos / 1e6 / lane.admitted,
+                TimeUnit.NANOSECONDS.toMillis(lane.maxWaitNanos));
+    }
+}
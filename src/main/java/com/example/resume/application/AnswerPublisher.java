@@ -0,0 +1,56 @@
+package com.example.resume.application;
+
+import akka.javasdk.client.ComponentClient;
+import com.example.resume.domain.Answer;
+import com.example.resume.domain.Answers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends answers to the {@link PartialAnswersEntity} of a workflow as they arrive.
+ * <p>
+ * There is at most one append in flight: answers arriving meanwhile are sent together
+ * with the next one, so a fast stream does not turn into one write per answer.
+ * A failed append is only logged, the step result holds all the answers anyway.
+ */
+final class AnswerPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnswerPublisher.class);
+
+    private final ComponentClient componentClient;
+    private final String workflowId;
+    private List<Answer> buffered = new ArrayList<>();
+    private boolean appending = false;
+
+    AnswerPublisher(ComponentClient componentClient, String workflowId) {
+        this.componentClient = componentClient;
+        this.workflowId = workflowId;
+    }
+
+    synchronized void publish(Answer answer) {
+        buffered.add(answer);
+        if (!appending) appendBuffered();
+    }
+
+    private synchronized void appendBuffered() {
+        if (buffered.isEmpty()) {
+            appending = false;
+            return;
+        }
+        var batch = new Answers(buffered);
+        buffered = new ArrayList<>();
+        appending = true;
+
+        componentClient.forKeyValueEntity(workflowId)
+                .method(PartialAnswersEntity::append)
+                .invokeAsync(batch)
+                .whenComplete((__, error) -> {
+                    if (error != null)
+                        logger.warn("Could not publish {} answers of workflow {}", batch.answers().size(), workflowId, error);
+                    appendBuffered();
+                });
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.resume.application;
+
+import akka.javasdk.client.ComponentClient;
+import com.example.resume.Metrics;
+import com.example.resume.domain.Answer;
+import com.example.resume.domain.Answers;
+import com.example.resume.domain.Question;
+import com.example.resume.domain.ResumeAnswers;
+import com.example.resume.repository.GeminiService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/**
+ * Incremental answering: answers are stored per resume and per normalized question field, in
+ * {@link ResumeAnswersEntity}, so screening a resume again only asks Gemini the fields never answered.
+ * <p>
+ * Fields are normalized (case, spacing and punctuation) so "Email:" and "email" are the same
+ * field, while "Years of experience" and "Years of Java experience" are not.
+ */
+public class AnswerStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnswerStore.class);
+
+    private final GeminiService gemini;
+    private final ComponentClient componentClient;
+    private final Metrics metrics;
+
+    public AnswerStore(GeminiService gemini, ComponentClient componentClient, Metrics metrics) {
+        this.gemini = gemini;
+        this.componentClient = componentClient;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Answers the questions about a resume: stored answers first, Gemini for the others.
+     * Every answer is passed to {@code onAnswer} as soon as it is known. Answers are in the order of the questions.
+     */
+    public CompletionStage<Answers> answer(String resumeDigest, String resumeInfo, List<Question> questions, Consumer<Answer> onAnswer) {
+        return stored(resumeDigest)
+                .thenCompose(stored -> {
+                    var cached = new HashMap<Question, Answer>();
+                    var missing = new ArrayList<Question>();
+                    for (var question : questions) {
+                        var answer = stored.byField().get(normalize(question.field()));
+                        if (answer != null) cached.put(question, new Answer(question.question(), answer));
+                        else missing.add(question);
+                    }
+                    logger.info("Answering resume {}: {} stored answers, {} questions for Gemini", resumeDigest, cached.size(), missing.size());
+                    metrics.add("answers_total", "Answers given, by source", cached.size(), "source", "store");
+                    metrics.add("answers_total", "Answers given, by source", missing.size(), "source", "gemini");
+                    cached.values().forEach(onAnswer);
+
+                    if (missing.isEmpty()) return CompletableFuture.completedStage(inOrder(questions, cached));
+
+                    return gemini.answerToQuestions(resumeInfo, missing, onAnswer)
+                            .thenCompose(generated -> {
+                                var byQuestion = new HashMap<>(cached);
+                                byQuestion.putAll(match(missing, generated.answers()));
+                                var unmatched = generated.answers().stream().filter(answer -> !byQuestion.containsValue(answer)).toList();
+                                var result = inOrder(questions, byQuestion);
+                                // answers that could not be matched to a question are returned, but not stored
+                                var all = new ArrayList<>(result.answers());
+                                all.addAll(unmatched);
+                                return store(resumeDigest, missing, byQuestion).thenApply(__ -> new Answers(all));
+                            });
+                });
+    }
+
+    private CompletionStage<ResumeAnswers> stored(String resumeDigest) {
+        return componentClient.forKeyValueEntity(resumeDigest)
+                .method(ResumeAnswersEntity::get)
+                .invokeAsync()
+                .exceptionally(e -> {
+                    logger.warn("Unable to read the stored answers of resume {}", resumeDigest, e);
+                    return ResumeAnswers.empty();
+                });
+    }
+
+    private CompletionStage<Void> store(String resumeDigest, List<Question> asked, Map<Question, Answer> answers) {
+        var byField = new HashMap<String, String>();
+        for (var question : asked) {
+            var answer = answers.get(question);
+            if (answer != null && answer.answer() != null) byField.put(normalize(question.field()), answer.answer());
+        }
+        if (byField.isEmpty()) return CompletableFuture.completedStage(null);
+
+        return componentClient.forKeyValueEntity(resumeDigest)
+                .method(ResumeAnswersEntity::store)
+                .invokeAsync(byField)
+                .handle((__, e) -> {
+                    if (e != null) logger.warn("Unable to store the answers of resume {}", resumeDigest, e);
+                    return null;
+                });
+    }
+
+    // Gemini echoes the question text, not always verbatim: an answer is matched on the whole question,
+    // else on the bare field. An answer matching several questions, or a question matched by several answers,
+    // stays unmatched, so it is returned but never stored under the wrong field.
+    static Map<Question, Answer> match(List<Question> questions, List<Answer> answers) {
+        // a question without a field could only be stored under an empty key
+        var distinct = questions.stream()
+                .filter(question -> !normalize(question.field()).isEmpty())
+                .distinct()
+                .toList();
+        var claims = new HashMap<Question, List<Answer>>();
+        for (var answer : answers) {
+            if (answer.question() == null) continue;
+            var echoed = normalize(answer.question());
+            if (echoed.isEmpty()) continue;
+
+            var candidates = distinct.stream()
+                    .filter(question -> normalize(question.question()).equals(echoed))
+                    .toList();
+            if (candidates.isEmpty())
+                candidates = distinct.stream()
+                        .filter(question -> echoed.equals(normalize(question.field())))
+                        .toList();
+            if (candidates.size() == 1)
+                claims.computeIfAbsent(candidates.get(0), __ -> new ArrayList<>()).add(answer);
+        }
+
+        var matched = new HashMap<Question, Answer>();
+        claims.forEach((question, claiming) -> {
+            if (claiming.size() == 1) matched.put(question, claiming.get(0));
+        });
+        return matched;
+    }
+
+    private static Answers inOrder(List<Question> questions, Map<Question, Answer> answers) {
+        return new Answers(questions.stream().map(answers::get).filter(Objects::nonNull).toList());
+    }
+
+    static String normalize(String field) {
+        if (field == null) return "";
+        return field.toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .strip();
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.resume.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.workflow.Workflow;
+import akka.javasdk.workflow.WorkflowContext;
+import com.example.resume.domain.*;
+import com.example.resume.repository.BlobStore;
+import com.example.resume.repository.TimeoutPolicy;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.IntStream;
+
+import static com.example.resume.Utils.delay;
+import static java.time.Duration.ofSeconds;
+
+/**
+ * Screens one application form against many resumes.
+ * <p>
+ * The questions of the form are generated once, then one {@link ResumeAnalysisWorkflow} per resume
+ * is started, keeping at most {@code parallelism} of them running at the same time.
+ */
+@ComponentId("batch-screening-workflow")
+public class BatchScreeningWorkflow extends Workflow<BatchState> {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchScreeningWorkflow.class);
+
+    private final String batchId;
+    private final ComponentClient componentClient;
+    private final FormTemplates formTemplates;
+    private final BlobStore blobStore;
+    private final ScheduledExecutorService scheduler;
+    private final TimeoutPolicy timeouts;
+    private final int defaultParallelism;
+    private final int maxParallelism;
+    private final Duration pollInterval;
+    private final int maxStartAttempts;
+
+    public BatchScreeningWorkflow(WorkflowContext context, Config config, ComponentClient componentClient,
+                                  FormTemplates formTemplates, BlobStore blobStore, ScheduledExecutorService scheduler,
+                                  TimeoutPolicy timeouts) {
+        this.batchId = context.workflowId();
+        this.componentClient = componentClient;
+        this.formTemplates = formTemplates;
+        this.blobStore = blobStore;
+        this.scheduler = scheduler;
+        this.timeouts = timeouts;
+        this.defaultParallelism = config.getInt("batch.default-parallelism");
+        this.maxParallelism = config.getInt("batch.max-parallelism");
+        this.pollInterval = config.getDuration("batch.poll-interval");
+        this.maxStartAttempts = config.getInt("batch.max-start-attempts");
+    }
+
+    // Step names
+    private final String prepareFormStepName = "prepare-form-step";
+    private final String dispatchStepName = "dispatch-step";
+    private final String waitStepName = "wait-step";
+    private final String failoverStepName = "failover-step";
+
+    /**
+     * Workflow Diagram: Batch Screening
+     *
+     * <pre><code>
+     * +----------------------------+
+     * | prepare-form-step          |
+     * | (Generate the questions of |
+     * |  the form, once)           |
+     * +------------+--------------+
+     *              |
+     *              v
+     * +----------------------------+
+     * | dispatch-step              |<------+
+     * | (Collect finished resumes, |       |
+     * |  start pending ones up to  |       |
+     * |  the parallelism limit)    |       |
+     * +------------+--------------+       |
+     *              |                       |
+     *              | (some still running)  |
+     *              v                       |
+     * +----------------------------+       |
+     * | wait-step                  |-------+
+     * | (Wait the poll interval)   |
+     * +----------------------------+
+     *
+     *              | (all done)
+     *              v
+     * +----------------------------+
+     * | END                        |
+     * +----------------------------+
+     * </code></pre>
+     */
+    @Override
+    public WorkflowDef<BatchState> definition() {
+
+        // Generate (or reuse) the question set, so that no resume workflow has to
+        Step prepareFormStep = step(prepareFormStepName)
+                .asyncCall(() -> {
+                    var form = currentState().applicationForm();
+                    return formTemplates.questionsFor(form.digest(), () -> blobStore.get(form))
+                            .thenApply(List::size);
+                })
+                .andThen(Integer.class, questions -> {
+                    logger.info("Batch {}: {} questions generated, screening {} resumes.", batchId, questions, currentState().items().size());
+                    return effects()
+                            .updateState(currentState().withState(BatchState.StateEnum.SCREENING))
+                            .transitionTo(dispatchStepName);
+                })
+                .timeout(timeouts.ceiling(prepareFormStepName));
+
+        Step dispatchStep = step(dispatchStepName)
+                .asyncCall(this::dispatch)
+                .andThen(BatchProgress.class, progress -> {
+                    var newState = currentState().withItems(progress.items());
+                    logger.info("Batch {}: {} pending, {} running, {} succeeded, {} failed.", batchId,
+                            newState.count(BatchState.ItemStatus.PENDING), newState.count(BatchState.ItemStatus.RUNNING),
+                            newState.count(BatchState.ItemStatus.SUCCEEDED), newState.count(BatchState.ItemStatus.FAILED));
+
+                    if (newState.allDone())
+                        return effects()
+                                .updateState(newState.withState(BatchState.StateEnum.COMPLETED))
+                                .end();
+                    else
+                        return effects()
+                                .updateState(newState)
+                                .transitionTo(waitStepName);
+                });
+
+        Step waitStep = step(waitStepName)
+                .asyncCall(() -> delay(scheduler, pollInterval))
+                .andThen(Done.class, __ -> effects().transitionTo(dispatchStepName));
+
+        Step failoverHandler = step(failoverStepName)
+                .asyncCall(() -> {
+                    logger.error("Batch {} failed.", batchId);
+                    return CompletableFuture.completedStage(Done.done());
+                })
+                .andThen(Done.class, __ ->
+                        effects()
+                                .updateState(currentState().withState(BatchState.StateEnum.FAILED))
+                                .end());
+
+        return workflow()
+                .defaultStepTimeout(ofSeconds(30))
+                .defaultStepRecoverStrategy(maxRetries(2).failoverTo(failoverStepName))
+                .addStep(prepareFormStep)
+                .addStep(dispatchStep)
+                .addStep(waitStep)
+                .addStep(failoverHandler);
+    }
+
+    // Refresh the running items, then start pending ones in the free slots
+    private CompletionStage<BatchProgress> dispatch() {
+        var state = currentState();
+        var updates = new ArrayList<CompletionStage<BatchState.Item>>();
+        var running = (int) state.count(BatchState.ItemStatus.RUNNING);
+
+        for (var item : state.items()) {
+            switch (item.status()) {
+                case RUNNING -> updates.add(refresh(item));
+                case PENDING -> {
+                    if (running < state.parallelism()) {
+                        running++;
+                        updates.add(start(item, state.applicationForm()));
+                    } else {
+                        updates.add(CompletableFuture.completedStage(item));
+                    }
+                }
+                default -> updates.add(CompletableFuture.completedStage(item));
+            }
+        }
+
+        return CompletableFuture.allOf(updates.stream().map(CompletionStage::toCompletableFuture).toArray(CompletableFuture[]::new))
+                .thenApply(__ -> new BatchProgress(updates.stream().map(u -> u.toCompletableFuture().join()).toList()));
+    }
+
+    private CompletionStage<BatchState.Item> start(BatchState.Item item, BlobRef applicationForm) {
+        return componentClient.forWorkflow(item.workflowId())
+                .method(ResumeAnalysisWorkflow::screen)
+                .invokeAsync(new ScreeningRequest(applicationForm, item.resume(), batchId))
+                .thenApply(__ -> item.withStatus(BatchState.ItemStatus.RUNNING))
+                .exceptionally(e -> {
+                    // a permanent error, e.g. a workflow id already used for another screening, fails every attempt
+                    var failed = item.withFailedStart();
+                    if (failed.failedStarts() >= maxStartAttempts) {
+                        logger.error("Unable to start {} after {} attempts. Giving up.", item.workflowId(), failed.failedStarts(), e);
+                        return failed.withStatus(BatchState.ItemStatus.FAILED);
+                    }
+                    logger.warn("Unable to start {}, attempt {}/{}. Retrying later.", item.workflowId(), failed.failedStarts(), maxStartAttempts, e);
+                    return failed;
+                });
+    }
+
+    private CompletionStage<BatchState.Item> refresh(BatchState.Item item) {
+        return componentClient.forWorkflow(item.workflowId())
+                .method(ResumeAnalysisWorkflow::getStatus)
+                .invokeAsync()
+                .thenApply(status -> switch (status.state()) {
+                    case FINISHED -> item.withStatus(BatchState.ItemStatus.SUCCEEDED);
+                    case FAILED -> item.withStatus(BatchState.ItemStatus.FAILED);
+                    default -> item;
+                })
+                .exceptionally(e -> {
+                    logger.warn("Unable to get the status of {}.", item.workflowId(), e);
+                    return item;
+                });
+    }
+
+    @Override
+    public BatchState emptyState() {
+        return BatchState.initial();
+    }
+
+    public Effect<Done> start(BatchRequest request) {
+        if (currentState().state() != BatchState.StateEnum.EMPTY)
+            return effects().error("Batch " + batchId + " already exists.");
+        if (request.applicationForm() == null)
+            return effects().error("Missing mandatory data. Please provide an application form.");
+        if (request.resumes() == null || request.resumes().isEmpty())
+            return effects().error("Missing mandatory data. Please provide at least one resume.");
+
+        var parallelism = request.parallelism() == null
+                ? defaultParallelism
+                : Math.max(1, Math.min(request.parallelism(), maxParallelism));
+        var items = IntStream.range(0, request.resumes().size())
+                .mapToObj(i -> new BatchState.Item(batchId + "-" + i, request.resumes().get(i), BatchState.ItemStatus.PENDING, 0))
+                .toList();
+
+        return effects()
+                .updateState(new BatchState(request.applicationForm(), parallelism, BatchState.StateEnum.PREPARING_FORM, items))
+                .transitionTo(prepareFormStepName)
+                .thenReply(Done.done());
+    }
+
+    public ReadOnlyEffect<BatchState> getStatus() {
+        return effects().reply(currentState());
+    }
+}
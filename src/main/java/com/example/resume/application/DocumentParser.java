@@ -0,0 +1,175 @@
+package com.example.resume.application;
+
+import akka.javasdk.client.ComponentClient;
+import akka.util.ByteString;
+import com.example.resume.LruCache;
+import com.example.resume.Metrics;
+import com.example.resume.SingleFlight;
+import com.example.resume.domain.CacheStats;
+import com.example.resume.domain.JobResponse;
+import com.example.resume.domain.ParsedMarkdown;
+import com.example.resume.repository.LLamaIndexService;
+import com.example.resume.repository.LLamaIndexService.ParseInstructions;
+import com.example.resume.repository.LocalPdfExtractor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.resume.Utils.sha256;
+
+/**
+ * Parses PDFs to markdown, caching the results by content.
+ * <p>
+ * The cache key is the SHA-256 of the PDF and of the parse instructions. Lookups go through
+ * an in-memory LRU tier, then through the {@link ParsedMarkdownEntity} durable tier.
+ * On a miss on both, the PDF is uploaded to LlamaIndex, waiting for the parse job.
+ * Concurrent parses of the same PDF with the same instructions share one lookup and one parse job.
+ * <p>
+ * Resumes only need their text: the text layer of born-digital ones is extracted in-process first, and
+ * cached under the SHA-256 of the PDF and {@code "local"}, apart from the markdown of LlamaIndex.
+ * Application forms always go to LlamaIndex, whose instructions extract their fields.
+ */
+public class DocumentParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentParser.class);
+    // Qualifier of the cache keys of the text extracted in-process
+    private static final String LOCAL = "local";
+
+    private final LLamaIndexService llama;
+    private final LlamaIndexJobs jobs;
+    private final LocalPdfExtractor local;
+    private final Metrics metrics;
+    private final ComponentClient componentClient;
+    private final LruCache<String, String> memory;
+    private final SingleFlight<String> inFlight;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong durableHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public DocumentParser(LLamaIndexService llama, LlamaIndexJobs jobs, LocalPdfExtractor local, Metrics metrics, ComponentClient componentClient,
+                          long maxMemoryBytes) {
+        this.llama = llama;
+        this.jobs = jobs;
+        this.local = local;
+        this.metrics = metrics;
+        this.inFlight = new SingleFlight<>("parse", metrics);
+        this.componentClient = componentClient;
+        // markdown is mostly ASCII: its length is a good estimate of its size
+        this.memory = new LruCache<>(maxMemoryBytes, String::length);
+    }
+
+    public CompletionStage<String> parseApplicationForm(ByteString file) {
+        return parse(LLamaIndexService.APPLICATION_FORM, file);
+    }
+
+    public CompletionStage<String> parseResume(ByteString file) {
+        var key = sha256(file, LOCAL);
+
+        var cached = memory.get(key);
+        if (cached.isPresent()) {
+            // an empty text marks a resume without a usable text layer
+            if (cached.get().isEmpty()) return parse(LLamaIndexService.RESUME, file);
+            memoryHits.incrementAndGet();
+            logger.info("Extracted text {} found in memory", key);
+            return CompletableFuture.completedStage(cached.get());
+        }
+
+        return inFlight.apply(key, () -> lookupOrExtract(key, file))
+                .thenCompose(text -> text.isEmpty() ? parse(LLamaIndexService.RESUME, file) : CompletableFuture.completedStage(text));
+    }
+
+    public CompletionStage<String> parse(ParseInstructions instructions, ByteString file) {
+        var key = sha256(file, instructions.fingerprint());
+
+        var cached = memory.get(key);
+        if (cached.isPresent()) {
+            memoryHits.incrementAndGet();
+            logger.info("Parsed markdown {} found in memory", key);
+            return CompletableFuture.completedStage(cached.get());
+        }
+
+        return inFlight.apply(key, () -> lookupOrParse(key, instructions, file));
+    }
+
+    private CompletionStage<String> lookupOrParse(String key, ParseInstructions instructions, ByteString file) {
+        return componentClient.forKeyValueEntity(key)
+                .method(ParsedMarkdownEntity::get)
+                .invokeAsync()
+                .exceptionally(e -> {
+                    logger.warn("Unable to read parsed markdown {}", key, e);
+                    return ParsedMarkdown.empty();
+                })
+                .thenCompose(stored -> {
+                    if (stored.markdown() != null) {
+                        durableHits.incrementAndGet();
+                        logger.info("Parsed markdown {} found in the durable store", key);
+                        memory.put(key, stored.markdown());
+                        return CompletableFuture.completedStage(stored.markdown());
+                    }
+
+                    misses.incrementAndGet();
+                    metrics.increment("document_extractions_total", "Documents parsed on a cache miss, by parser", "parser", "llamaindex");
+                    return llama.uploadAndWaitForCompletion(instructions, file, job -> register(job, key))
+                            .thenCompose(markdown -> store(key, markdown));
+                });
+    }
+
+    // Completes with an empty text if the resume has no usable text layer
+    private CompletionStage<String> lookupOrExtract(String key, ByteString file) {
+        return componentClient.forKeyValueEntity(key)
+                .method(ParsedMarkdownEntity::get)
+                .invokeAsync()
+                .exceptionally(e -> {
+                    logger.warn("Unable to read extracted text {}", key, e);
+                    return ParsedMarkdown.empty();
+                })
+                .thenCompose(stored -> {
+                    if (stored.markdown() != null) {
+                        durableHits.incrementAndGet();
+                        logger.info("Extracted text {} found in the durable store", key);
+                        memory.put(key, stored.markdown());
+                        return CompletableFuture.completedStage(stored.markdown());
+                    }
+
+                    return local.extract(file)
+                            .thenCompose(text -> {
+                                if (text.isEmpty()) {
+                                    // kept in memory only, to go straight to LlamaIndex next time
+                                    memory.put(key, "");
+                                    return CompletableFuture.completedStage("");
+                                }
+                                misses.incrementAndGet();
+                                metrics.increment("document_extractions_total", "Documents parsed on a cache miss, by parser", "parser", "local");
+                                return store(key, text.get());
+                            });
+                });
+    }
+
+    // Job id to document, for the completion notifications received by any node
+    private CompletionStage<Void> register(JobResponse job, String key) {
+        return jobs.register(job.id(), key)
+                .handle((__, e) -> {
+                    if (e != null) logger.warn("Unable to register job {} of {}, its completion will be found by polling", job.id(), key, e);
+                    return null;
+                });
+    }
+
+    private CompletionStage<String> store(String key, String markdown) {
+        memory.put(key, markdown);
+        return componentClient.forKeyValueEntity(key)
+                .method(ParsedMarkdownEntity::store)
+                .invokeAsync(new ParsedMarkdown(markdown))
+                .handle((__, e) -> {
+                    if (e != null) logger.warn("Unable to store parsed markdown {}", key, e);
+                    return markdown;
+                });
+    }
+
+    public CacheStats stats() {
+        return new CacheStats("parsed-markdown", memoryHits.get(), durableHits.get(), misses.get(), memory.size(), memory.weight());
+    }
+}
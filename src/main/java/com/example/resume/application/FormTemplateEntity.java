@@ -0,0 +1,42 @@
+package com.example.resume.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import com.example.resume.domain.FormTemplate;
+import com.example.resume.domain.Question;
+
+import java.util.List;
+
+/**
+ * Registry entry of an application form. The entity id is the SHA-256 of the form PDF.
+ */
+@ComponentId("form-template")
+public class FormTemplateEntity extends KeyValueEntity<FormTemplate> {
+
+    @Override
+    public FormTemplate emptyState() {
+        return FormTemplate.empty();
+    }
+
+    // Store a generated question set, unless a pinned one is already there
+    public Effect<FormTemplate> register(List<Question> questions) {
+        if (currentState().pinned())
+            return effects().reply(currentState());
+
+        var template = new FormTemplate(questions, false);
+        return effects()
+                .updateState(template)
+                .thenReply(template);
+    }
+
+    public Effect<FormTemplate> pin(List<Question> questions) {
+        var template = new FormTemplate(questions, true);
+        return effects()
+                .updateState(template)
+                .thenReply(template);
+    }
+
+    public ReadOnlyEffect<FormTemplate> get() {
+        return effects().reply(currentState());
+    }
+}
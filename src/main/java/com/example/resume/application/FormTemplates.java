@@ -0,0 +1,92 @@
+package com.example.resume.application;
+
+import akka.javasdk.client.ComponentClient;
+import akka.util.ByteString;
+import com.example.resume.domain.FormTemplate;
+import com.example.resume.domain.Question;
+import com.example.resume.repository.GeminiService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+import static com.example.resume.Utils.sha256;
+
+/**
+ * Question sets of the application forms, generated once per form and then reused.
+ * <p>
+ * Forms are identified by the SHA-256 of their PDF, so the same form always yields the same questions.
+ * Templates are stored in {@link FormTemplateEntity}; a missing one is generated by parsing
+ * the form and converting its fields with Gemini.
+ */
+public class FormTemplates {
+
+    private static final Logger logger = LoggerFactory.getLogger(FormTemplates.class);
+
+    private final DocumentParser parser;
+    private final GeminiService gemini;
+    private final ComponentClient componentClient;
+
+    public FormTemplates(DocumentParser parser, GeminiService gemini, ComponentClient componentClient) {
+        this.parser = parser;
+        this.gemini = gemini;
+        this.componentClient = componentClient;
+    }
+
+    public static String digest(ByteString applicationForm) {
+        return sha256(applicationForm);
+    }
+
+    public CompletionStage<List<Question>> questionsFor(ByteString applicationForm) {
+        return questionsFor(digest(applicationForm), () -> CompletableFuture.completedStage(applicationForm));
+    }
+
+    /**
+     * @param applicationForm loads the form PDF, only called when no template is registered for the digest
+     */
+    public CompletionStage<List<Question>> questionsFor(String digest, Supplier<CompletionStage<ByteString>> applicationForm) {
+        return get(digest)
+                .thenCompose(template -> {
+                    if (template.questions() != null) {
+                        logger.info("Reusing the questions of form {} [pinned={}]", digest, template.pinned());
+                        return CompletableFuture.completedStage(template.questions());
+                    }
+
+                    return applicationForm.get()
+                            .thenCompose(this::generate)
+                            .thenCompose(questions -> componentClient.forKeyValueEntity(digest)
+                                    .method(FormTemplateEntity::register)
+                                    .invokeAsync(questions))
+                            .thenApply(FormTemplate::questions);
+                });
+    }
+
+    public CompletionStage<FormTemplate> get(String digest) {
+        return componentClient.forKeyValueEntity(digest)
+                .method(FormTemplateEntity::get)
+                .invokeAsync();
+    }
+
+    public CompletionStage<FormTemplate> pin(String digest, List<Question> questions) {
+        logger.info("Pinning {} questions for form {}", questions.size(), digest);
+        return componentClient.forKeyValueEntity(digest)
+                .method(FormTemplateEntity::pin)
+                .invokeAsync(questions);
+    }
+
+    // Extract the fields of the application form, then turn them into questions
+    private CompletionStage<List<Question>> generate(ByteString applicationForm) {
+        return parser.parseApplicationForm(applicationForm)
+                .thenCompose(markdown -> {
+                    logger.info("Fields as markdown:\n{}", markdown);
+                    return gemini.convertMarkdownToJson(markdown);
+                })
+                .thenApply(resumeFields -> {
+                    logger.info("Markdown has been converted to JSON, generating the questions...");
+                    return resumeFields.fields().stream().map(Question::new).toList();
+                });
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.resume.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import com.example.resume.domain.LlamaIndexJob;
+
+import java.time.Instant;
+
+/**
+ * A LlamaIndex parse job and its completion notification. The entity id is the job id.
+ * <p>
+ * Written by the node uploading the document and by the node receiving the webhook, which are
+ * often not the same: the awaiting node reads the notification from here.
+ */
+@ComponentId("llamaindex-job")
+public class LlamaIndexJobEntity extends KeyValueEntity<LlamaIndexJob> {
+
+    @Override
+    public LlamaIndexJob emptyState() {
+        return LlamaIndexJob.empty();
+    }
+
+    public Effect<Done> register(String document) {
+        return effects()
+                .updateState(currentState().withUpload(document, Instant.now()))
+                .thenReply(Done.done());
+    }
+
+    // Also accepted before the job is registered: the upload response may arrive after the webhook
+    public Effect<Done> notifyCompleted() {
+        if (currentState().notified())
+            return effects().reply(Done.done());
+        return effects()
+                .updateState(currentState().withNotification(Instant.now()))
+                .thenReply(Done.done());
+    }
+
+    public ReadOnlyEffect<LlamaIndexJob> get() {
+        return effects().reply(currentState());
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.resume.application;
+
+import akka.Done;
+import akka.javasdk.client.ComponentClient;
+import com.example.resume.domain.LlamaIndexJob;
+import com.example.resume.repository.JobNotifications;
+
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Job notifications kept in {@link LlamaIndexJobEntity}, readable from every node.
+ */
+public class LlamaIndexJobs implements JobNotifications {
+
+    private final ComponentClient componentClient;
+
+    public LlamaIndexJobs(ComponentClient componentClient) {
+        this.componentClient = componentClient;
+    }
+
+    // Records the document parsed by a job just uploaded
+    public CompletionStage<Done> register(UUID jobId, String document) {
+        return componentClient.forKeyValueEntity(jobId.toString())
+                .method(LlamaIndexJobEntity::register)
+                .invokeAsync(document);
+    }
+
+    public CompletionStage<Done> notifyCompleted(UUID jobId) {
+        return componentClient.forKeyValueEntity(jobId.toString())
+                .method(LlamaIndexJobEntity::notifyCompleted)
+                .invokeAsync();
+    }
+
+    @Override
+    public CompletionStage<Boolean> notified(UUID jobId) {
+        return componentClient.forKeyValueEntity(jobId.toString())
+                .method(LlamaIndexJobEntity::get)
+                .invokeAsync()
+                .thenApply(LlamaIndexJob::notified);
+    }
+}
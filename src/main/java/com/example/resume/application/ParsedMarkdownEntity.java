@@ -0,0 +1,29 @@
+package com.example.resume.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import com.example.resume.domain.ParsedMarkdown;
+
+/**
+ * Durable tier of the parsed markdown cache.
+ * The entity id is the content digest of the PDF and of the parse instructions.
+ */
+@ComponentId("parsed-markdown")
+public class ParsedMarkdownEntity extends KeyValueEntity<ParsedMarkdown> {
+
+    @Override
+    public ParsedMarkdown emptyState() {
+        return ParsedMarkdown.empty();
+    }
+
+    public Effect<Done> store(ParsedMarkdown parsed) {
+        return effects()
+                .updateState(parsed)
+                .thenReply(Done.done());
+    }
+
+    public ReadOnlyEffect<ParsedMarkdown> get() {
+        return effects().reply(currentState());
+    }
+}
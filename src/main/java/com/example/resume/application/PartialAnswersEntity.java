@@ -0,0 +1,43 @@
+package com.example.resume.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import com.example.resume.domain.Answer;
+import com.example.resume.domain.Answers;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Answers published while the answer-questions-step of a workflow is running, before the
+ * step ends and stores them all in the workflow state. The entity id is the workflow id.
+ */
+@ComponentId("partial-answers")
+public class PartialAnswersEntity extends KeyValueEntity<Answers> {
+
+    @Override
+    public Answers emptyState() {
+        return new Answers(List.of());
+    }
+
+    // An answer published again (a retried chunk) replaces the previous one
+    public Effect<Done> append(Answers answers) {
+        var byQuestion = new LinkedHashMap<String, Answer>();
+        currentState().answers().forEach(answer -> byQuestion.put(answer.question(), answer));
+        answers.answers().forEach(answer -> byQuestion.put(answer.question(), answer));
+        return effects()
+                .updateState(new Answers(List.copyOf(byQuestion.values())))
+                .thenReply(Done.done());
+    }
+
+    public Effect<Done> reset() {
+        return effects()
+                .updateState(emptyState())
+                .thenReply(Done.done());
+    }
+
+    public ReadOnlyEffect<Answers> get() {
+        return effects().reply(currentState());
+    }
+}
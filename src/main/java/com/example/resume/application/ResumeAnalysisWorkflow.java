@@ -1,77 +1,127 @@
 package com.example.resume.application;
 
 import akka.Done;
+import akka.http.javadsl.model.ContentTypes;
+import akka.http.javadsl.model.MediaTypes;
 import akka.javasdk.annotations.ComponentId;
-import akka.javasdk.http.HttpClientProvider;
+import akka.javasdk.client.ComponentClient;
 import akka.javasdk.workflow.Workflow;
+import akka.javasdk.workflow.WorkflowContext;
+import akka.util.ByteString;
+import com.example.resume.Metrics;
 import com.example.resume.domain.*;
-import com.example.resume.repository.GeminiService;
-import com.example.resume.repository.LLamaIndexService;
+import com.example.resume.repository.BlobStore;
+import com.example.resume.repository.TimeoutPolicy;
 import com.typesafe.config.Config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 
-import static com.example.resume.Utils.readByteString;
+import static com.example.resume.Utils.sha256;
 import static java.time.Duration.ofSeconds;
 
 @ComponentId("resume-analysis-workflow")
 public class ResumeAnalysisWorkflow extends Workflow<ResumeAnalysisState> {
 
     private static final Logger logger = LoggerFactory.getLogger(ResumeAnalysisWorkflow.class);
-    private final GeminiService gemini;
-    private final LLamaIndexService llama;
+    private static final String APPLICATION_PDF = ContentTypes.create(MediaTypes.APPLICATION_PDF).toString();
+    private final AnswerStore answerStore;
+    private final AdmissionScheduler admission;
+    private final DocumentParser parser;
+    private final FormTemplates formTemplates;
+    private final BlobStore blobStore;
+    private final TimeoutPolicy timeouts;
+    private final Config stepRetries;
+    private final Metrics metrics;
+    private final ComponentClient componentClient;
+    private final String workflowId;
 
-    public ResumeAnalysisWorkflow(Config config, HttpClientProvider clientProvider) {
-        this.llama =  new LLamaIndexService(config.getString("llamaindex-api-key"), clientProvider);
-        this.gemini = new GeminiService(config.getString("gemini-api-key"), clientProvider);
+    public ResumeAnalysisWorkflow(Config config, DocumentParser parser, FormTemplates formTemplates, AnswerStore answerStore,
+                                  AdmissionScheduler admission, BlobStore blobStore, TimeoutPolicy timeouts, Metrics metrics,
+                                  ComponentClient componentClient, WorkflowContext context) {
+        this.componentClient = componentClient;
+        this.workflowId = context.workflowId();
+        this.parser = parser;
+        this.formTemplates = formTemplates;
+        this.answerStore = answerStore;
+        this.admission = admission;
+        this.blobStore = blobStore;
+        this.timeouts = timeouts;
+        this.metrics = metrics;
+        this.stepRetries = config.getConfig("workflow-step-retries");
     }
 
     // Step names
-    private final String extractApplicationFormStepName = "extract-application-step";
-    private final String generateQuestionsStepName = "generate-questions-step";
-    private final String extractResumeInfoStepName = "extract-resume-step";
+    private final String admissionStepName = "admission-step";
+    private final String extractDocumentsStepName = "extract-documents-step";
     private final String answerQuestionsStepName = "answer-questions-step";
     private final String resultStepName = "result-step";
     private final String failoverStepName = "failover-step";
 
+    // Steps of the sequential version of the workflow, kept so that analyses paused in one of them
+    // during a deployment resume with the parallel extraction
+    private final String legacyExtractApplicationFormStepName = "extract-application-step";
+    private final String legacyGenerateQuestionsStepName = "generate-questions-step";
+    private final String legacyExtractResumeInfoStepName = "extract-resume-step";
+
+    // Runs of extract-documents-step before giving up on a branch that keeps failing
+    private final int maxExtractionAttempts = 3;
+
     /**
      * Workflow Diagram: Resume Analysis
      *
      * <pre><code>
      * +----------------------------+
-     * | extract-application-step  |
-     * | (Extract fields from      |
-     * |  application form PDF)    |
-     * +------------+--------------+
-     *              |
-     *              v
-     * +----------------------------+
-     * | generate-questions-step    |
-     * | (Convert markdown to JSON, |
-     * |  generate questions)       |
-     * +------------+--------------+
+     * | admission-step             |<---+
+     * | (wait for a slot of the    |    | (not admitted yet:
+     * |  priority class)           |----+  record queue position)
+     * +------------+---------------+
      *              |
      *              v
-     * +----------------------------+
-     * | extract-resume-step        |
-     * | (Extract resume info as    |
-     * |  markdown)                 |
-     * +------------+--------------+
+     * +-------------------------------------------------------------+
+     * | extract-documents-step (fork)                               |
+     * |                                                             |
+     * |  form branch                    resume branch               |
+     * |  (skipped if the form has a     |                           |
+     * |   registered question set)      |                           |
+     * |  +-------------------------+    +------------------------+  |
+     * |  | extract fields from     |    | extract resume info as |  |
+     * |  | application form PDF    |    | markdown               |  |
+     * |  +-----------+-------------+    +-----------+------------+  |
+     * |              |                              |               |
+     * |              v                              |               |
+     * |  +-------------------------+                 |               |
+     * |  | convert markdown to     |                 |               |
+     * |  | JSON, generate questions|                 |               |
+     * |  +-----------+-------------+                 |               |
+     * |              |                              |               |
+     * |              +--------------+---------------+               |
+     * |                             | (join)                        |
+     * +-----------------------------+-------------------------------+
+     *              |                ^
+     *              |                | (a branch failed: run again,
+     *              |                |  only the missing branch)
+     *              +----------------+
      *              |
      *              v
      * +----------------------------+
      * | answer-questions-step      |
      * | (Answer questions using    |
-     * |  extracted resume info)    |
+     * |  extracted resume info,    |
+     * |  publish each answer)      |
      * +------------+--------------+
      *              |
      *              v
      * +----------------------------+
      * | result-step                |
-     * | (Log results, mark as done)|
+     * | (Log results, release the  |
+     * |  admission, mark as done)  |
      * +------------+--------------+
      *              |
      *              v
@@ -83,157 +133,285 @@ public class ResumeAnalysisWorkflow extends Workflow<ResumeAnalysisState> {
      *          v (on failure)
      * +----------------------------+
      * | failover-step              |
-     * | (Log failure, end flow)    |
+     * | (Log failure, release the  |
+     * |  admission, mark as failed)|
      * +----------------------------+
      * </code></pre>
      */
     @Override
     public WorkflowDef<ResumeAnalysisState> definition() {
 
-        // Given a PDF file path containing a job application form,
-        // extract the data fields that need to be filled by candidates
-        Step extractApplicationForm = step(extractApplicationFormStepName)
-                .asyncCall(() -> llama.uploadAndWaitForCompletion(llama::uploadAndParseApplicationForm, currentState().applicationFormBytes()))
-                .andThen(String.class, markdown -> {
-                    logger.info("Fields as markdown:\n{}", markdown);
-                    return effects()
-                            .updateState(currentState().withState(ResumeAnalysisState.StateEnum.APPLICATION_FORM_PROCESSED))
-                            .transitionTo(generateQuestionsStepName, markdown);
-                });
-
-        // Convert from Markdown to Json by calling Gemini.
-        // The output is a list of Questions.
-        Step generateQuestionsStep = step(generateQuestionsStepName)
-                .asyncCall(String.class, gemini::convertMarkdownToJson)
-                .andThen(ResumeFields.class, resumeFields -> {
-                    logger.info("Markdown has been converted to JSON, generating the questions...");
-                    var questions = resumeFields.fields().stream().map(Question::new).toList();
-                    var newState = currentState()
-                            .withState(ResumeAnalysisState.StateEnum.QUESTIONS_GENERATED)
-                            .withQuestions(questions);
-                    return effects()
-                            .updateState(newState)
-                            .transitionTo(extractResumeInfoStepName);
-                });
-
-        // Given a PDF file path containing a resume,
-        // extract the info as markdown
-        Step extractResumeInfoStep = step(extractResumeInfoStepName)
-                .asyncCall(() -> llama.uploadAndWaitForCompletion(llama::uploadAndParseResume, currentState().resumeBytes()))
-                .andThen(String.class, markdown ->
-                        effects()
-                                .updateState(currentState().withResumeInfo(markdown))
-                                .transitionTo(answerQuestionsStepName)
-                );
+        // Wait for a slot of the priority class of the analysis, at most max-wait per run:
+        // the queue position is recorded between runs, for the status readers
+        Step admissionStep = step(admissionStepName)
+                .asyncCall(() -> timed(admissionStepName, () -> admission.await(workflowId, currentState().priorityOr(admission.defaultPriority()))))
+                .andThen(Admission.class, admitted -> admitted.admitted()
+                        ? effects()
+                                .updateState(currentState().withQueuePosition(null).withStepCompleted(admissionStepName, Instant.now()))
+                                .transitionTo(extractDocumentsStepName)
+                        : effects()
+                                .updateState(currentState().withQueuePosition(admitted.position()))
+                                .transitionTo(admissionStepName));
 
-        // Answer the questions
-        Step answerQuestionsStep = step(answerQuestionsStepName)
-                .asyncCall(() -> {
-                    var resumeInfo = currentState().resumeInfo();
-                    var questions = currentState().questions();
-                    return gemini.answerToQuestions(resumeInfo, questions);
+        // Parse the application form and the resume at the same time.
+        // Each branch outcome is stored as soon as the step ends, so a new run
+        // (after a failure or a restart) only executes the branches still pending.
+        Step extractDocumentsStep = step(extractDocumentsStepName)
+                .asyncCall(() -> timed(extractDocumentsStepName, () -> {
+                    var state = currentState();
+
+                    CompletionStage<List<Question>> formBranch = state.formExtracted()
+                            ? CompletableFuture.completedStage(null)
+                            : metrics.time("workflow_branch", () -> formTemplates.questionsFor(applicationFormDigest(state), () -> applicationForm(state)), "branch", "form")
+                                .exceptionally(e -> branchFailed("application form", e));
+
+                    CompletionStage<String> resumeBranch = state.resumeExtracted()
+                            ? CompletableFuture.completedStage(null)
+                            : metrics.time("workflow_branch", () -> resume(state).thenCompose(parser::parseResume), "branch", "resume")
+                                .exceptionally(e -> branchFailed("resume", e));
+
+                    return formBranch.thenCombine(resumeBranch, ExtractionResult::new);
+                }))
+                .andThen(ExtractionResult.class, result -> {
+                    var newState = currentState().withExtractionAttempt()
+                            .withStepCompleted(extractDocumentsStepName, Instant.now());
+                    if (result.questions() != null)
+                        newState = newState.withQuestions(result.questions())
+                                .withState(ResumeAnalysisState.StateEnum.QUESTIONS_GENERATED);
+                    if (result.resumeInfo() != null)
+                        newState = newState.withResumeInfo(result.resumeInfo());
+
+                    if (newState.formExtracted() && newState.resumeExtracted()) {
+                        return effects()
+                                .updateState(newState.withState(ResumeAnalysisState.StateEnum.DOCUMENTS_PROCESSED))
+                                .transitionTo(answerQuestionsStepName);
+                    } else if (newState.extractionAttempts() < maxExtractionAttempts) {
+                        logger.warn("Extraction incomplete [form={}, resume={}], running again.", newState.formBranch(), newState.resumeBranch());
+                        return effects()
+                                .updateState(newState)
+                                .transitionTo(extractDocumentsStepName);
+                    } else {
+                        return effects()
+                                .updateState(newState)
+                                .transitionTo(failoverStepName);
+                    }
                 })
+                .timeout(timeouts.ceiling(extractDocumentsStepName));
+
+        // Answer the questions, only asking Gemini the fields never answered for this resume.
+        // The workflow state changes only when the step ends, so the answers are published
+        // to PartialAnswersEntity as they come, for the status readers.
+        Step answerQuestionsStep = step(answerQuestionsStepName)
+                .asyncCall(() -> timed(answerQuestionsStepName, () -> {
+                    var state = currentState();
+                    var publisher = new AnswerPublisher(componentClient, workflowId);
+                    return componentClient.forKeyValueEntity(workflowId)
+                            .method(PartialAnswersEntity::reset)
+                            .invokeAsync()
+                            .thenCompose(__ -> answerStore.answer(resumeDigest(state), state.resumeInfo(), state.questions(), publisher::publish));
+                }))
                 .andThen(Answers.class, answers -> {
                     var newState = currentState()
+                            .withStepCompleted(answerQuestionsStepName, Instant.now())
                             .withState(ResumeAnalysisState.StateEnum.ANSWERS_GENERATED)
                             .withAnswers(answers.answers());
                     return effects()
                             .updateState(newState)
                             .transitionTo(resultStepName);
-                });
+                })
+                .timeout(timeouts.ceiling(answerQuestionsStepName));
 
         // Display the results
         Step resultStep = step(resultStepName)
-                .asyncCall(() -> {
+                .asyncCall(() -> timed(resultStepName, () -> {
                     var state = currentState();
                     logger.info("""
-                            Resume path: {}
-                            Application form path: {}
+                            Resume: {}
+                            Application form: {}
                             
                             Extracted answers/questions:
                             {}
-                            """, state.resumeBytes(), state.applicationFormBytes(), state.answers());
+                            """, state.resume(), state.applicationForm(), state.answers());
 
+                    admission.release(workflowId);
                     return CompletableFuture.completedStage(Done.done());
-                })
+                }))
                 .andThen(Done.class, __ ->
                         effects()
-                                .updateState(currentState().withState(ResumeAnalysisState.StateEnum.FINISHED))
+                                .updateState(currentState()
+                                        .withStepCompleted(resultStepName, Instant.now())
+                                        .withState(ResumeAnalysisState.StateEnum.FINISHED))
                                 .end()
-                );
+                )
+                .timeout(timeouts.ceiling(resultStepName));
+
+        // The previous version ran extract-application-step, generate-questions-step (with the form
+        // markdown as input) and extract-resume-step in sequence: these aliases move the inline PDFs
+        // of its states to the blob store, then hand over to extract-documents-step, which runs the
+        // branches not extracted yet
+        Step legacyExtractApplicationFormStep = step(legacyExtractApplicationFormStepName)
+                .asyncCall(() -> timed(legacyExtractApplicationFormStepName, this::migrateInlinePdfs))
+                .andThen(MigratedPdfs.class, pdfs -> effects()
+                        .updateState(currentState().withMigratedPdfs(pdfs))
+                        .transitionTo(extractDocumentsStepName));
+
+        Step legacyGenerateQuestionsStep = step(legacyGenerateQuestionsStepName)
+                .asyncCall(String.class, markdown -> timed(legacyGenerateQuestionsStepName, this::migrateInlinePdfs))
+                .andThen(MigratedPdfs.class, pdfs -> effects()
+                        .updateState(currentState().withMigratedPdfs(pdfs))
+                        .transitionTo(extractDocumentsStepName));
+
+        Step legacyExtractResumeInfoStep = step(legacyExtractResumeInfoStepName)
+                .asyncCall(() -> timed(legacyExtractResumeInfoStepName, this::migrateInlinePdfs))
+                .andThen(MigratedPdfs.class, pdfs -> effects()
+                        .updateState(currentState().withMigratedPdfs(pdfs))
+                        .transitionTo(extractDocumentsStepName));
 
         Step failoverHandler = step(failoverStepName)
-                .asyncCall(() -> {
+                .asyncCall(() -> timed(failoverStepName, () -> {
                     logger.error("Failover procedure. Something went wrong!");
+                    admission.release(workflowId);
                     return CompletableFuture.completedStage(Done.done());
-                })
-                .andThen(Done.class, __ -> effects().end());
+                }))
+                .andThen(Done.class, __ ->
+                        effects()
+                                .updateState(currentState()
+                                        .withStepCompleted(failoverStepName, Instant.now())
+                                        .withState(ResumeAnalysisState.StateEnum.FAILED))
+                                .end());
 
         return workflow()
                 .defaultStepTimeout(ofSeconds(30))
                 .defaultStepRecoverStrategy(maxRetries(0).failoverTo(failoverStepName))
-                .addStep(extractApplicationForm)
-                .addStep(generateQuestionsStep)
-                .addStep(extractResumeInfoStep)
-                .addStep(answerQuestionsStep)
-                .addStep(resultStep)
+                .addStep(admissionStep, maxRetries(2).failoverTo(failoverStepName))
+                .addStep(extractDocumentsStep, retryPolicy(extractDocumentsStepName))
+                .addStep(answerQuestionsStep, retryPolicy(answerQuestionsStepName))
+                .addStep(resultStep, retryPolicy(resultStepName))
                 .addStep(failoverHandler)
+                .addStep(legacyExtractApplicationFormStep)
+                .addStep(legacyGenerateQuestionsStep)
+                .addStep(legacyExtractResumeInfoStep)
                 ;
     }
 
+    // Latency, errors by cause and in-flight count of each step
+    private <T> CompletionStage<T> timed(String stepName, Supplier<CompletionStage<T>> step) {
+        return metrics.time("workflow_step", step, "step", stepName);
+    }
+
+    // A failed step is run again on its own: the results of the previous steps are already in the state
+    private RecoverStrategy<?> retryPolicy(String stepName) {
+        var retries = stepRetries.hasPath(stepName) ? stepRetries.getInt(stepName) : 0;
+        return maxRetries(retries).failoverTo(failoverStepName);
+    }
+
+    // Content addressed: the references have the digests computed from the inline PDFs
+    private CompletionStage<MigratedPdfs> migrateInlinePdfs() {
+        var state = currentState();
+        CompletionStage<BlobRef> resume = state.resumeBytes() != null
+                ? blobStore.put(state.resumeBytes(), APPLICATION_PDF)
+                : CompletableFuture.completedStage(null);
+        CompletionStage<BlobRef> applicationForm = state.applicationFormBytes() != null
+                ? blobStore.put(state.applicationFormBytes(), APPLICATION_PDF)
+                : CompletableFuture.completedStage(null);
+        return resume.thenCombine(applicationForm, MigratedPdfs::new);
+    }
+
+    // Legacy states hold the PDFs inline until they reach a legacy step, the others reference them in the blob store
+    private CompletionStage<ByteString> resume(ResumeAnalysisState state) {
+        return state.resumeBytes() != null
+                ? CompletableFuture.completedStage(state.resumeBytes())
+                : blobStore.get(state.resume());
+    }
+
+    private CompletionStage<ByteString> applicationForm(ResumeAnalysisState state) {
+        return state.applicationFormBytes() != null
+                ? CompletableFuture.completedStage(state.applicationFormBytes())
+                : blobStore.get(state.applicationForm());
+    }
+
+    private static String applicationFormDigest(ResumeAnalysisState state) {
+        return state.applicationFormBytes() != null
+                ? FormTemplates.digest(state.applicationFormBytes())
+                : state.applicationForm().digest();
+    }
+
+    private static String resumeDigest(ResumeAnalysisState state) {
+        return state.resumeBytes() != null
+                ? sha256(state.resumeBytes())
+                : state.resume().digest();
+    }
+
+    private static <T> T branchFailed(String branch, Throwable error) {
+        logger.error("Extraction of the {} failed.", branch, error);
+        return null;
+    }
+
     @Override
     public ResumeAnalysisState emptyState() {
         return ResumeAnalysisState.initial();
     }
 
-    // Entry point that starts the workflow
-    public Effect<Done> start() {
+    // Entry point that starts the workflow, with the admission class of the analysis
+    public Effect<Done> start(Priority priority) {
         var current = currentState();
 
         // State validation
-        if (current.resumeBytes() == null)
+        if (!current.resumeAvailable())
             return effects()
                     .error("Missing mandatory data. Please upload a resume file.");
 
-        if (current.applicationFormBytes() == null)
+        if (!current.applicationFormAvailable())
             return effects()
                     .error("Missing mandatory data. Please upload a application form file.");
 
         // Start processing
         return effects()
                 // set the internal state to STARTED
-                .updateState(currentState().withState(ResumeAnalysisState.StateEnum.STARTED))
+                .updateState(currentState().withStarted(Instant.now()).withPriority(priority == null ? admission.defaultPriority() : priority))
                 // jump to the first step
-                .transitionTo(extractApplicationFormStepName)
+                .transitionTo(admissionStepName)
                 // ack, no response
                 .thenReply(Done.done());
     }
 
-    public Effect<Done> setup() {
+    // Entry point of the analyses started by a batch, with both documents already uploaded
+    // The batch calls it again when it did not get the reply: a screening already started with the same documents is acknowledged as is
+    public Effect<Done> screen(ScreeningRequest request) {
+        var current = currentState();
+        if (current.startedAt() != null) {
+            if (Objects.equals(current.batchId(), request.batchId())
+                    && Objects.equals(current.resume(), request.resume())
+                    && Objects.equals(current.applicationForm(), request.applicationForm()))
+                return effects().reply(Done.done());
+            return effects()
+                    .error("Analysis " + workflowId + " already started with other documents.");
+        }
+
         return effects()
-                // set the data
                 .updateState(currentState()
-                        .withApplicationForm(new ApplicationFormBytes(readByteString(Path.of("/Users/nicola/Downloads/fake_application_form.pdf"))))
-                        .withResume(new ResumeBytes(readByteString(Path.of("/Users/nicola/Downloads/fake_resume.pdf")))))
-                // wait for manual input to start the processing
-                .pause()
-                // ack, no response
+                        .withApplicationForm(request.applicationForm())
+                        .withResume(request.resume())
+                        .withBatchId(request.batchId())
+                        .withStarted(Instant.now())
+                        .withPriority(Priority.BULK))
+                .transitionTo(admissionStepName)
                 .thenReply(Done.done());
     }
 
-    public Effect<Done> acceptApplicationForm(ApplicationFormBytes bytes) {
+    public Effect<Done> acceptApplicationForm(BlobRef applicationForm) {
         return effects()
                 .updateState(currentState()
-                    .withApplicationForm(bytes)
+                    .withApplicationForm(applicationForm)
                 )
                 .pause()
                 .thenReply(Done.done());
     }
 
-    public Effect<Done> acceptResume(ResumeBytes bytes) {
+    public Effect<Done> acceptResume(BlobRef resume) {
         return effects()
                 .updateState(currentState()
-                        .withResume(bytes)
+                        .withResume(resume)
                 )
                 .pause()
                 .thenReply(Done.done());
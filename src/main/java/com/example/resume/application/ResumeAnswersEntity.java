@@ -0,0 +1,31 @@
+package com.example.resume.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import com.example.resume.domain.ResumeAnswers;
+
+import java.util.Map;
+
+/**
+ * Answer store of a resume. The entity id is the SHA-256 of the resume PDF.
+ */
+@ComponentId("resume-answers")
+public class ResumeAnswersEntity extends KeyValueEntity<ResumeAnswers> {
+
+    @Override
+    public ResumeAnswers emptyState() {
+        return ResumeAnswers.empty();
+    }
+
+    // New answers replace the ones stored for the same field
+    public Effect<Done> store(Map<String, String> answers) {
+        return effects()
+                .updateState(currentState().merge(answers))
+                .thenReply(Done.done());
+    }
+
+    public ReadOnlyEffect<ResumeAnswers> get() {
+        return effects().reply(currentState());
+    }
+}
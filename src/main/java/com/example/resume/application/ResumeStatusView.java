@@ -0,0 +1,94 @@
+package com.example.resume.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.annotations.Query;
+import akka.javasdk.annotations.Table;
+import akka.javasdk.view.TableUpdater;
+import akka.javasdk.view.View;
+import com.example.resume.domain.Answer;
+import com.example.resume.domain.Answers;
+import com.example.resume.domain.ResumeAnalysisState;
+import com.example.resume.domain.StepDuration;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * What status readers need of the analyses, without the PDFs and the extracted texts of the workflow state.
+ * Watchers follow the streaming queries: updates are pushed to them, the workflows are not read.
+ * Dashboards list the analyses by status or batch, one page at a time.
+ */
+@ComponentId("resume-status-view")
+public class ResumeStatusView extends View {
+
+    public record ResumeStatus(String id, String status, boolean resumeAvailable, boolean applicationFormAvailable, List<Answer> answers,
+                               String batchId, Instant startedAt, Instant updatedAt, List<StepDuration> stepDurations, Integer queuePosition) {}
+
+    public record StatusPage(List<ResumeStatus> statuses, String nextPageToken, boolean hasMore) {}
+
+    // An empty page token is the first page
+    public record ByStatusQuery(String status, Instant since, String pageToken, int pageSize) {}
+
+    public record ByBatchQuery(String batchId, String pageToken, int pageSize) {}
+
+    // Answers published while the questions are being answered, see PartialAnswersEntity
+    public record PartialAnswers(String id, List<Answer> answers) {}
+
+    @Table("resume_status")
+    @Consume.FromWorkflow(ResumeAnalysisWorkflow.class)
+    public static class ResumeStatusUpdater extends TableUpdater<ResumeStatus> {
+
+        public Effect<ResumeStatus> onUpdate(ResumeAnalysisState state) {
+            var id = updateContext().eventSubject().orElse("");
+            return effects().updateRow(new ResumeStatus(id, state.state().name(),
+                    state.resumeAvailable(), state.applicationFormAvailable(), state.answers(),
+                    state.batchId(), state.startedAt(), state.updatedAt(),
+                    state.stepDurations() == null ? List.of() : state.stepDurations(), state.queuePosition()));
+        }
+    }
+
+    @Table("partial_answers")
+    @Consume.FromKeyValueEntity(PartialAnswersEntity.class)
+    public static class PartialAnswersUpdater extends TableUpdater<PartialAnswers> {
+
+        public Effect<PartialAnswers> onUpdate(Answers answers) {
+            var id = updateContext().eventSubject().orElse("");
+            return effects().updateRow(new PartialAnswers(id, answers.answers()));
+        }
+    }
+
+    @Query("""
+            SELECT * AS statuses, next_page_token() AS nextPageToken, has_more() AS hasMore
+            FROM resume_status
+            WHERE status = :status AND updatedAt >= :since
+            ORDER BY updatedAt DESC
+            OFFSET page_token_offset(:pageToken)
+            LIMIT :pageSize
+            """)
+    public QueryEffect<StatusPage> byStatus(ByStatusQuery query) {
+        return queryResult();
+    }
+
+    @Query("""
+            SELECT * AS statuses, next_page_token() AS nextPageToken, has_more() AS hasMore
+            FROM resume_status
+            WHERE batchId = :batchId
+            ORDER BY updatedAt DESC
+            OFFSET page_token_offset(:pageToken)
+            LIMIT :pageSize
+            """)
+    public QueryEffect<StatusPage> byBatch(ByBatchQuery query) {
+        return queryResult();
+    }
+
+    @Query(value = "SELECT * FROM resume_status WHERE id = :id", streamUpdates = true)
+    public QueryStreamEffect<ResumeStatus> watchStatus(String id) {
+        return queryStreamResult();
+    }
+
+    @Query(value = "SELECT * FROM partial_answers WHERE id = :id", streamUpdates = true)
+    public QueryStreamEffect<PartialAnswers> watchPartialAnswers(String id) {
+        return queryStreamResult();
+    }
+}
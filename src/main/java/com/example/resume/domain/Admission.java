@@ -0,0 +1,15 @@
+package com.example.resume.domain;
+
+/**
+ * Outcome of waiting for admission: admitted, or still queued at {@code position} (1 is next) among its priority.
+ */
+public record Admission(boolean admitted, int position) {
+
+    public static Admission granted() {
+        return new Admission(true, 0);
+    }
+
+    public static Admission queued(int position) {
+        return new Admission(false, position);
+    }
+}
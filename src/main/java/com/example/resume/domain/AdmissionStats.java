@@ -0,0 +1,3 @@
+package com.example.resume.domain;
+
+public record AdmissionStats(Priority priority, int queued, int running, long admitted, double averageWaitMillis, long maxWaitMillis) { }
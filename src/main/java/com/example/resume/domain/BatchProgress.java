@@ -0,0 +1,5 @@
+package com.example.resume.domain;
+
+import java.util.List;
+
+public record BatchProgress(List<BatchState.Item> items) { }
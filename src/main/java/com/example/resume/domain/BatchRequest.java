@@ -0,0 +1,9 @@
+package com.example.resume.domain;
+
+import java.util.List;
+
+/**
+ * One application form screened against many resumes, at most {@code parallelism} at a time.
+ * A {@code null} parallelism means the configured default.
+ */
+public record BatchRequest(BlobRef applicationForm, List<BlobRef> resumes, Integer parallelism) { }
@@ -0,0 +1,57 @@
+package com.example.resume.domain;
+
+import java.util.Collections;
+import java.util.List;
+
+public record BatchState(
+        BlobRef applicationForm,
+        int parallelism,
+        StateEnum state,
+        List<Item> items) {
+
+    public enum StateEnum {
+        EMPTY,
+        PREPARING_FORM,
+        SCREENING,
+        COMPLETED,
+        FAILED
+    }
+
+    public enum ItemStatus {
+        PENDING,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    // A resume and the workflow screening it, with the failed attempts to start it
+    public record Item(String workflowId, BlobRef resume, ItemStatus status, int failedStarts) {
+        public Item withStatus(ItemStatus status) {
+            return new Item(workflowId, resume, status, failedStarts);
+        }
+
+        public Item withFailedStart() {
+            return new Item(workflowId, resume, status, failedStarts + 1);
+        }
+    }
+
+    public static BatchState initial() {
+        return new BatchState(null, 0, StateEnum.EMPTY, Collections.emptyList());
+    }
+
+    public long count(ItemStatus status) {
+        return items.stream().filter(item -> item.status() == status).count();
+    }
+
+    public boolean allDone() {
+        return items.stream().noneMatch(item -> item.status() == ItemStatus.PENDING || item.status() == ItemStatus.RUNNING);
+    }
+
+    public BatchState withState(StateEnum state) {
+        return new BatchState(applicationForm, parallelism, state, items);
+    }
+
+    public BatchState withItems(List<Item> items) {
+        return new BatchState(applicationForm, parallelism, state, items);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.resume.domain;
+
+import java.util.regex.Pattern;
+
+/**
+ * Reference to a document held in the blob store. The digest is the hex SHA-256 of its content.
+ */
+public record BlobRef(String digest, long size, String contentType) {
+
+    private static final Pattern DIGEST = Pattern.compile("[0-9a-f]{64}");
+
+    // 64 lowercase hex characters, as computed by the blob stores
+    public static boolean isDigest(String digest) {
+        return digest != null && DIGEST.matcher(digest).matches();
+    }
+}
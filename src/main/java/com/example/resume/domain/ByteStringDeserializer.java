@@ -1,17 +1,20 @@
 package com.example.resume.domain;
 
 import akka.util.ByteString;
+import com.fasterxml.jackson.core.Base64Variants;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 
 import java.io.IOException;
-import java.util.Base64;
 
+/**
+ * Reads a standard Base64 string into a ByteString.
+ * The parser decodes from its own text buffer and the decoded array is wrapped without copying.
+ */
 public class ByteStringDeserializer extends JsonDeserializer<ByteString> {
         @Override
         public ByteString deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
-            byte[] decoded = Base64.getDecoder().decode(p.getValueAsString());
-            return ByteString.fromArray(decoded);
+            return ByteString.fromArrayUnsafe(p.getBinaryValue(Base64Variants.MIME_NO_LINEFEEDS));
         }
-}
\ No newline at end of file
+}
@@ -1,16 +1,20 @@
 package com.example.resume.domain;
 
 import akka.util.ByteString;
+import com.fasterxml.jackson.core.Base64Variants;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
 
 import java.io.IOException;
-import java.util.Base64;
 
+/**
+ * Writes a ByteString as a standard Base64 string, the same as {@code Base64.getEncoder()}.
+ * The generator encodes straight from the ByteString buffers: no intermediate array nor String.
+ */
 public class ByteStringSerializer extends JsonSerializer<ByteString> {
         @Override
         public void serialize(ByteString value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
-            gen.writeString(Base64.getEncoder().encodeToString(value.toArray()));
+            gen.writeBinary(Base64Variants.MIME_NO_LINEFEEDS, value.iterator().asInputStream(), value.length());
         }
-}
\ No newline at end of file
+}
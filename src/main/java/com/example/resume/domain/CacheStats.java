@@ -0,0 +1,3 @@
+package com.example.resume.domain;
+
+public record CacheStats(String name, long memoryHits, long durableHits, long misses, int entries, long weight) { }
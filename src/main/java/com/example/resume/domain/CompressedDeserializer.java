@@ -0,0 +1,56 @@
+package com.example.resume.domain;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads the values written by {@link CompressedSerializer}: a deflated object, or the plain value
+ * of small values and of states persisted before compression.
+ */
+public class CompressedDeserializer extends JsonDeserializer<Object> implements ContextualDeserializer {
+
+    private static final ObjectMapper fallbackMapper = new ObjectMapper();
+
+    private final JavaType type;
+
+    public CompressedDeserializer() {
+        this(null);
+    }
+
+    private CompressedDeserializer(JavaType type) {
+        this.type = type;
+    }
+
+    @Override
+    public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property) {
+        return new CompressedDeserializer(property.getType());
+    }
+
+    @Override
+    public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT)
+            return ctxt.readValue(p, type);
+
+        JsonNode node = ctxt.readTree(p);
+        var version = node.path("v").asInt();
+        var codec = node.path("codec").asText();
+        if (version != CompressedSerializer.VERSION || !codec.equals(CompressedSerializer.DEFLATE))
+            throw JsonMappingException.from(p, "Unsupported compressed value [v=" + version + ", codec=" + codec + "]");
+
+        try (var json = new InflaterInputStream(new ByteArrayInputStream(node.path("data").binaryValue()))) {
+            var mapper = p.getCodec() instanceof ObjectMapper objectMapper ? objectMapper : fallbackMapper;
+            return mapper.readValue(json, type);
+        }
+    }
+
+    @Override
+    public Object getNullValue(DeserializationContext ctxt) {
+        return null;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.resume.domain;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a value as usual when its JSON is small, or deflated when it is {@value #THRESHOLD} bytes or more:
+ * {@code {"v": 1, "codec": "deflate", "data": "<Base64>"}}, where data is the JSON of the value.
+ * <p>
+ * Version 0 is the plain value, so states persisted before compression are read by {@link CompressedDeserializer} as they are.
+ */
+public class CompressedSerializer extends JsonSerializer<Object> {
+
+    public static final int THRESHOLD = 4096;
+    static final int VERSION = 1;
+    static final String DEFLATE = "deflate";
+
+    private static final ObjectMapper fallbackMapper = new ObjectMapper();
+
+    @Override
+    public void serialize(Object value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        var mapper = gen.getCodec() instanceof ObjectMapper codec ? codec : fallbackMapper;
+        // serialized once: the bytes are written as they are when small, deflated otherwise
+        var json = mapper.writeValueAsBytes(value);
+        if (json.length < THRESHOLD) {
+            gen.writeRawValue(new String(json, StandardCharsets.UTF_8));
+            return;
+        }
+
+        gen.writeStartObject();
+        gen.writeNumberField("v", VERSION);
+        gen.writeStringField("codec", DEFLATE);
+        gen.writeFieldName("data");
+        gen.writeBinary(deflate(json));
+        gen.writeEndObject();
+    }
+
+    // Fastest level: markdown and answers compress well anyway, and states are written on every transition
+    private static byte[] deflate(byte[] json) throws IOException {
+        var out = new ByteArrayOutputStream(json.length / 4);
+        var deflater = new Deflater(Deflater.BEST_SPEED);
+        try (var stream = new DeflaterOutputStream(out, deflater)) {
+            stream.write(json);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.resume.domain;
+
+import java.util.List;
+
+/**
+ * Outcome of one run of the parallel extraction.
+ * A {@code null} value means that branch did not complete in this run (skipped or failed).
+ */
+public record ExtractionResult(List<Question> questions, String resumeInfo) { }
@@ -0,0 +1,14 @@
+package com.example.resume.domain;
+
+import java.util.List;
+
+/**
+ * Question set of an application form, identified by the SHA-256 of the form PDF.
+ * A pinned template has been registered on purpose and is never replaced by a generated one.
+ */
+public record FormTemplate(List<Question> questions, boolean pinned) {
+
+    public static FormTemplate empty() {
+        return new FormTemplate(null, false);
+    }
+}
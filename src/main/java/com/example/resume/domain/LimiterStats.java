@@ -0,0 +1,3 @@
+package com.example.resume.domain;
+
+public record LimiterStats(String name, int queued, int inFlight, long admitted, long rejected, double averageWaitMillis, long maxWaitMillis) { }
@@ -0,0 +1,27 @@
+package com.example.resume.domain;
+
+import java.time.Instant;
+
+/**
+ * A LlamaIndex parse job, identified by its job id: the document it parses (the parsed markdown key of the PDF
+ * and instructions) and when LlamaIndex notified its completion. A {@code null} notifiedAt means not notified yet.
+ */
+public record LlamaIndexJob(String document, Instant uploadedAt, Instant notifiedAt) {
+
+    public static LlamaIndexJob empty() {
+        return new LlamaIndexJob(null, null, null);
+    }
+
+    public boolean notified() {
+        return notifiedAt != null;
+    }
+
+    // A notification may arrive before the upload response: it is kept
+    public LlamaIndexJob withUpload(String document, Instant at) {
+        return new LlamaIndexJob(document, at, notifiedAt);
+    }
+
+    public LlamaIndexJob withNotification(Instant at) {
+        return new LlamaIndexJob(document, uploadedAt, notifiedAt != null ? notifiedAt : at);
+    }
+}
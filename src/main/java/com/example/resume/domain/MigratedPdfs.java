@@ -0,0 +1,7 @@
+package com.example.resume.domain;
+
+/**
+ * Blob store references of the inline PDFs of a legacy state.
+ * A {@code null} value means the state did not hold that PDF inline.
+ */
+public record MigratedPdfs(BlobRef resume, BlobRef applicationForm) { }
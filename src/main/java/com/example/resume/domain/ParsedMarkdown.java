@@ -0,0 +1,12 @@
+package com.example.resume.domain;
+
+/**
+ * Markdown produced by parsing a PDF with a given set of instructions.
+ * A {@code null} markdown means the document has not been parsed yet.
+ */
+public record ParsedMarkdown(String markdown) {
+
+    public static ParsedMarkdown empty() {
+        return new ParsedMarkdown(null);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.resume.domain;
+
+/**
+ * Admission class of an analysis: interactive checks are admitted ahead of the standard ones, and bulk screening last.
+ */
+public enum Priority {
+    INTERACTIVE,
+    STANDARD,
+    BULK
+}
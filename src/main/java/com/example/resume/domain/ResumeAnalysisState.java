@@ -1,61 +1,180 @@
 package com.example.resume.domain;
 
 import akka.util.ByteString;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 public record ResumeAnalysisState(
+        // The PDFs are in the blob store, the state only references them
+        BlobRef resume,
+        BlobRef applicationForm,
+
+        StateEnum state,
+
+        // The largest texts are deflated when persisted, see CompressedSerializer
+        @JsonSerialize(using = CompressedSerializer.class)
+        @JsonDeserialize(using = CompressedDeserializer.class)
+        String resumeInfo,
+        List<Question> questions,
+        @JsonSerialize(using = CompressedSerializer.class)
+        @JsonDeserialize(using = CompressedDeserializer.class)
+        List<Answer> answers,
+
+        // Progress of the two extraction branches, running in parallel
+        BranchStatus formBranch,
+        BranchStatus resumeBranch,
+        int extractionAttempts,
+
+        // Batch that started this analysis, null if it was started on its own
+        String batchId,
+
+        // When the analysis started and last changed, and how long each step took.
+        // Null in states persisted before they were recorded.
+        Instant startedAt,
+        Instant updatedAt,
+        List<StepDuration> stepDurations,
+
+        // Admission class of the analysis, null in states persisted before it was recorded (standard).
+        // Position in the admission queue while waiting for it, null once admitted.
+        Priority priority,
+        Integer queuePosition,
+
+        // Inline PDFs of states persisted before the blob store was introduced, never set otherwise.
+        // Moved to the blob store and cleared by the legacy steps these states resume at.
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         @JsonSerialize(using = ByteStringSerializer.class)
         @JsonDeserialize(using = ByteStringDeserializer.class)
         ByteString resumeBytes,
 
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         @JsonSerialize(using = ByteStringSerializer.class)
         @JsonDeserialize(using = ByteStringDeserializer.class)
-        ByteString applicationFormBytes,
-
-        StateEnum state,
-        String resumeInfo,
-        List<Question> questions,
-        List<Answer> answers) {
+        ByteString applicationFormBytes) {
 
     public enum StateEnum {
         READY,
         STARTED,
         APPLICATION_FORM_PROCESSED,
         QUESTIONS_GENERATED,
+        DOCUMENTS_PROCESSED,
         ANSWERS_GENERATED,
-        FINISHED
+        FINISHED,
+        FAILED
+    }
+
+    public enum BranchStatus {
+        PENDING,
+        DONE
     }
 
     public static ResumeAnalysisState initial() {
-        return new ResumeAnalysisState(null, null, StateEnum.READY, null, Collections.emptyList(), Collections.emptyList());
+        return new ResumeAnalysisState(null, null, StateEnum.READY, null, Collections.emptyList(), Collections.emptyList(),
+                BranchStatus.PENDING, BranchStatus.PENDING, 0, null, null, null, Collections.emptyList(), null, null, null, null);
+    }
+
+    public boolean resumeAvailable() {
+        return resume != null || resumeBytes != null;
+    }
+
+    public boolean applicationFormAvailable() {
+        return applicationForm != null || applicationFormBytes != null;
     }
 
-    public ResumeAnalysisState withApplicationForm(ApplicationFormBytes applicationFormPath) {
-        return new ResumeAnalysisState(resumeBytes, applicationFormPath.bytes(), state, resumeInfo, questions, answers);
+    public boolean formExtracted() {
+        return formBranch == BranchStatus.DONE;
     }
 
-    public ResumeAnalysisState withResume(ResumeBytes resumePath) {
-        return new ResumeAnalysisState(resumePath.bytes(), applicationFormBytes, state, resumeInfo, questions, answers);
+    public boolean resumeExtracted() {
+        return resumeBranch == BranchStatus.DONE;
+    }
+
+    public ResumeAnalysisState withApplicationForm(BlobRef applicationForm) {
+        return new ResumeAnalysisState(resume, applicationForm, state, resumeInfo, questions, answers,
+                BranchStatus.PENDING, resumeBranch, extractionAttempts, batchId, startedAt, updatedAt, stepDurations, priority, queuePosition, resumeBytes, null);
+    }
+
+    public ResumeAnalysisState withResume(BlobRef resume) {
+        return new ResumeAnalysisState(resume, applicationForm, state, resumeInfo, questions, answers,
+                formBranch, BranchStatus.PENDING, extractionAttempts, batchId, startedAt, updatedAt, stepDurations, priority, queuePosition, null, applicationFormBytes);
+    }
+
+    // Replaces the inline PDFs by their blob store references, keeping the extraction progress
+    public ResumeAnalysisState withMigratedPdfs(MigratedPdfs pdfs) {
+        return new ResumeAnalysisState(
+                pdfs.resume() != null ? pdfs.resume() : resume,
+                pdfs.applicationForm() != null ? pdfs.applicationForm() : applicationForm,
+                state, resumeInfo, questions, answers, formBranch, resumeBranch, extractionAttempts, batchId, startedAt, updatedAt,
+                stepDurations, priority, queuePosition,
+                pdfs.resume() != null ? null : resumeBytes,
+                pdfs.applicationForm() != null ? null : applicationFormBytes);
     }
 
     public ResumeAnalysisState withState(StateEnum state) {
-        return new ResumeAnalysisState(resumeBytes, applicationFormBytes, state, resumeInfo, questions, answers);
+        return new ResumeAnalysisState(resume, applicationForm, state, resumeInfo, questions, answers,
+                formBranch, resumeBranch, extractionAttempts, batchId, startedAt, updatedAt, stepDurations, priority, queuePosition, resumeBytes, applicationFormBytes);
     }
 
+    // Completes the resume branch
     public ResumeAnalysisState withResumeInfo(String resumeInfo) {
-        return new ResumeAnalysisState(resumeBytes, applicationFormBytes, state, resumeInfo, questions, answers);
+        return new ResumeAnalysisState(resume, applicationForm, state, resumeInfo, questions, answers,
+                formBranch, BranchStatus.DONE, extractionAttempts, batchId, startedAt, updatedAt, stepDurations, priority, queuePosition, resumeBytes, applicationFormBytes);
     }
 
+    // Completes the application form branch
     public ResumeAnalysisState withQuestions(List<Question> questions) {
-        return new ResumeAnalysisState(resumeBytes, applicationFormBytes, state, resumeInfo, questions, answers);
+        return new ResumeAnalysisState(resume, applicationForm, state, resumeInfo, questions, answers,
+                BranchStatus.DONE, resumeBranch, extractionAttempts, batchId, startedAt, updatedAt, stepDurations, priority, queuePosition, resumeBytes, applicationFormBytes);
     }
 
     public ResumeAnalysisState withAnswers(List<Answer> answers) {
-        return new ResumeAnalysisState(resumeBytes, applicationFormBytes, state, resumeInfo, questions, answers);
+        return new ResumeAnalysisState(resume, applicationForm, state, resumeInfo, questions, answers,
+                formBranch, resumeBranch, extractionAttempts, batchId, startedAt, updatedAt, stepDurations, priority, queuePosition, resumeBytes, applicationFormBytes);
+    }
+
+    public ResumeAnalysisState withBatchId(String batchId) {
+        return new ResumeAnalysisState(resume, applicationForm, state, resumeInfo, questions, answers,
+                formBranch, resumeBranch, extractionAttempts, batchId, startedAt, updatedAt, stepDurations, priority, queuePosition, resumeBytes, applicationFormBytes);
+    }
+
+    public ResumeAnalysisState withExtractionAttempt() {
+        return new ResumeAnalysisState(resume, applicationForm, state, resumeInfo, questions, answers,
+                formBranch, resumeBranch, extractionAttempts + 1, batchId, startedAt, updatedAt, stepDurations, priority, queuePosition, resumeBytes, applicationFormBytes);
+    }
+
+    public ResumeAnalysisState withStarted(Instant at) {
+        return new ResumeAnalysisState(resume, applicationForm, StateEnum.STARTED, resumeInfo, questions, answers,
+                formBranch, resumeBranch, extractionAttempts, batchId, at, at, Collections.emptyList(), priority, null, resumeBytes, applicationFormBytes);
+    }
+
+    public ResumeAnalysisState withPriority(Priority priority) {
+        return new ResumeAnalysisState(resume, applicationForm, state, resumeInfo, questions, answers,
+                formBranch, resumeBranch, extractionAttempts, batchId, startedAt, updatedAt, stepDurations, priority, queuePosition, resumeBytes, applicationFormBytes);
+    }
+
+    // Null once admitted
+    public ResumeAnalysisState withQueuePosition(Integer queuePosition) {
+        return new ResumeAnalysisState(resume, applicationForm, state, resumeInfo, questions, answers,
+                formBranch, resumeBranch, extractionAttempts, batchId, startedAt, updatedAt, stepDurations, priority, queuePosition, resumeBytes, applicationFormBytes);
+    }
+
+    // Null in the states persisted before the admission classes
+    public Priority priorityOr(Priority defaultPriority) {
+        return priority == null ? defaultPriority : priority;
+    }
+
+    // A step runs from the previous change of the state until this one
+    public ResumeAnalysisState withStepCompleted(String step, Instant at) {
+        var durations = new ArrayList<StepDuration>(stepDurations == null ? List.of() : stepDurations);
+        if (updatedAt != null) durations.add(new StepDuration(step, Duration.between(updatedAt, at).toMillis()));
+        return new ResumeAnalysisState(resume, applicationForm, state, resumeInfo, questions, answers,
+                formBranch, resumeBranch, extractionAttempts, batchId, startedAt, at, durations, priority, queuePosition, resumeBytes, applicationFormBytes);
     }
 
-}
\ No newline at end of file
+}
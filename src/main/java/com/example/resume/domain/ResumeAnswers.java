@@ -0,0 +1,21 @@
+package com.example.resume.domain;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Answers already given about a resume, by normalized field of the question.
+ * Reused when the same resume is screened again, against the same form or another one.
+ */
+public record ResumeAnswers(Map<String, String> byField) {
+
+    public static ResumeAnswers empty() {
+        return new ResumeAnswers(Map.of());
+    }
+
+    public ResumeAnswers merge(Map<String, String> answers) {
+        var merged = new HashMap<>(byField);
+        merged.putAll(answers);
+        return new ResumeAnswers(Map.copyOf(merged));
+    }
+}
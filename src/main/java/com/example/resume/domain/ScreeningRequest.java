@@ -0,0 +1,6 @@
+package com.example.resume.domain;
+
+/**
+ * Documents of a single screening started by a batch.
+ */
+public record ScreeningRequest(BlobRef applicationForm, BlobRef resume, String batchId) { }
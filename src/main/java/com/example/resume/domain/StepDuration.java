@@ -0,0 +1,6 @@
+package com.example.resume.domain;
+
+/**
+ * Time spent in a workflow step, from the transition into it to the transition out of it.
+ */
+public record StepDuration(String step, long millis) { }
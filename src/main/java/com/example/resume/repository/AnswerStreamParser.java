@@ -0,0 +1,94 @@
+package com.example.resume.repository;
+
+import com.example.resume.domain.Answer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental parser of an answers reply, {@code { "answers": [ { "question": ..., "answer": ... }, ... ] }},
+ * fed with the text fragments of a streamed response.
+ * <p>
+ * Each answer is returned as soon as its object is closed; the reply is never held as a whole.
+ */
+final class AnswerStreamParser {
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    // Depth of the objects of the answers array: root object, array, answer
+    private static final int ANSWER_DEPTH = 3;
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private int depth = 0;
+    private String field;
+    private String question;
+    private String answer;
+
+    AnswerStreamParser() {
+        try {
+            this.parser = factory.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    // Answers completed by this fragment
+    List<Answer> feed(String fragment) {
+        var bytes = fragment.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+        } catch (IOException e) {
+            throw new IllegalStateException("Malformed streamed answers", e);
+        }
+        return drain();
+    }
+
+    // Answers completed by the end of the input, fails if the reply is truncated
+    List<Answer> end() {
+        feeder.endOfInput();
+        var completed = drain();
+        if (depth != 0) throw new IllegalStateException("Streamed answers ended before the reply was complete");
+        return completed;
+    }
+
+    private List<Answer> drain() {
+        var completed = new ArrayList<Answer>();
+        try {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                switch (token) {
+                    case START_OBJECT, START_ARRAY -> {
+                        depth++;
+                        if (depth == ANSWER_DEPTH) {
+                            question = null;
+                            answer = null;
+                        }
+                    }
+                    case END_OBJECT, END_ARRAY -> {
+                        if (depth == ANSWER_DEPTH && token == JsonToken.END_OBJECT)
+                            completed.add(new Answer(question, answer));
+                        depth--;
+                    }
+                    case FIELD_NAME -> field = parser.currentName();
+                    case VALUE_STRING, VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT, VALUE_TRUE, VALUE_FALSE -> {
+                        if (depth != ANSWER_DEPTH) break;
+                        if ("question".equals(field)) question = parser.getValueAsString();
+                        else if ("answer".equals(field)) answer = parser.getValueAsString();
+                    }
+                    default -> { }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Malformed streamed answers", e);
+        }
+        return completed;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.resume.repository;
+
+import akka.stream.Materializer;
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+import com.example.resume.domain.BlobRef;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Content addressed store of the uploaded documents.
+ * Storing the same content twice returns the same reference and keeps a single copy.
+ */
+public interface BlobStore {
+
+    CompletionStage<BlobRef> put(ByteString bytes, String contentType);
+
+    /**
+     * Stores the content while it arrives. The digest is computed incrementally, chunk by chunk.
+     */
+    CompletionStage<BlobRef> put(Source<ByteString, ?> data, String contentType, Materializer materializer);
+
+    /**
+     * Fails with {@link java.util.NoSuchElementException} if the blob does not exist.
+     */
+    CompletionStage<ByteString> get(BlobRef ref);
+
+    /**
+     * True if the blob exists with the size of the reference, without reading it.
+     * Fails with {@link IllegalArgumentException} if the digest is malformed.
+     */
+    CompletionStage<Boolean> exists(BlobRef ref);
+}
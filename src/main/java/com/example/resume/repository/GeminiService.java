@@ -4,15 +4,35 @@ import akka.javasdk.JsonSupport;
 import akka.javasdk.http.HttpClient;
 import akka.javasdk.http.HttpClientProvider;
 import akka.util.ByteString;
+import com.example.resume.LruCache;
+import com.example.resume.Metrics;
+import com.example.resume.SingleFlight;
+import com.example.resume.Utils;
+import com.example.resume.domain.Answer;
 import com.example.resume.domain.Answers;
 import com.example.resume.domain.Question;
 import com.example.resume.domain.ResumeFields;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class GeminiService {
@@ -20,11 +40,47 @@ public class GeminiService {
     private static final Logger logger = LoggerFactory.getLogger(GeminiService.class);
 
     private final String apiKey;
+    private final String baseUrl;
     private final HttpClient client;
+    // The SDK client reads whole responses: streamed ones go through the JDK client
+    private final java.net.http.HttpClient streamingClient;
+    private final Chunking chunking;
+    private final RateLimiter limiter;
+    private final Retry retry;
+    private final Retry chunkRetry;
+    private final TimeoutPolicy timeouts;
+    // Both calls are idempotent: a duplicate request is harmless
+    private final Hedging convertHedging;
+    private final Hedging answerHedging;
+    private final Metrics metrics;
+    // Identical forms converted at the same time, e.g. by the workflows of a batch
+    private final SingleFlight<String> conversions;
+    private final ResumeIndex.Selection selection;
+    // Built once per resume, reused by its chunks, retries and later screenings
+    private final LruCache<String, ResumeIndex> indexes;
 
-    public GeminiService(String apiKey, HttpClientProvider clientProvider) {
+    public GeminiService(String apiKey, String baseUrl, HttpClientProvider clientProvider, Chunking chunking, ResumeIndex.Selection selection,
+                         RateLimiter limiter, Retry retry, TimeoutPolicy timeouts, Hedging.Settings hedging, ScheduledExecutorService scheduler,
+                         Metrics metrics) {
         this.apiKey = apiKey;
-        this.client = clientProvider.httpClientFor("https://generativelanguage.googleapis.com");
+        this.baseUrl = baseUrl;
+        this.client = clientProvider.httpClientFor(baseUrl);
+        this.streamingClient = java.net.http.HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        this.chunking = chunking;
+        this.limiter = limiter;
+        this.retry = retry;
+        this.chunkRetry = retry.withMaxRetries(chunking.retries());
+        this.timeouts = timeouts;
+        this.convertHedging = new Hedging("Gemini markdown conversion", hedging, scheduler);
+        this.answerHedging = new Hedging("Gemini answers", hedging, scheduler);
+        this.metrics = metrics;
+        this.conversions = new SingleFlight<>("gemini_markdown_conversion", metrics);
+        this.selection = selection;
+        this.indexes = new LruCache<>(selection.maxMemorySize(), ResumeIndex::size);
+    }
+
+    public RateLimiter limiter() {
+        return limiter;
     }
 
     // Request
@@ -37,8 +93,10 @@ public class GeminiService {
     private record ResponseBody(List<Candidate> candidates) {}
     private record Candidate(Content content) {}
 
-    // Internal API call
-    private CompletionStage<String> call(String query) {
+    // Internal API call. The hedge only covers the HTTP request, once the limiter granted its permit:
+    // the wait in the limiter queue is neither hedged nor counted in the hedging latencies.
+    // The hedge takes a permit of its own, only if one is free at once: it never waits nor exceeds the limits
+    private CompletionStage<String> call(String query, Hedging hedging) {
 
         logger.info("Calling Gemini with [query={}]", query);
 
@@ -52,7 +110,38 @@ public class GeminiService {
             }
          */
 
-        var request = new RequestBody(
+        var request = requestBody(query);
+
+        metrics.observe("payload_size_bytes", "Size of the payloads", Metrics.SIZE_BUCKETS, query.length(), "kind", "gemini_prompt");
+
+        var tokens = estimateTokens(query);
+        Supplier<CompletionStage<ResponseBody>> generate = () ->
+                metrics.time("external_call", () -> timeouts.observe("gemini-generate", query.length(), () ->
+                        client.POST("/v1beta/models/gemini-2.0-flash:generateContent")
+                                .addQueryParameter("key", apiKey)
+                                .withRequestBody(request)
+                                .withTimeout(timeouts.deadline("gemini-generate", query.length()))
+                                .responseBodyAs(ResponseBody.class)
+                                .invokeAsync()),
+                        "provider", "gemini", "operation", "generateContent")
+                .thenApply(res -> {
+                    if (!res.status().isSuccess()) {
+                        logger.error("An error occurred calling Gemini generateContent: {}", res);
+                        throw new HttpStatusException("An error occurred calling Gemini generateContent", res.status().intValue());
+                    }
+                    return res.body();
+                });
+
+        return limiter.submit(tokens, () -> hedging.apply(generate, hedge -> limiter.trySubmit(tokens, hedge)))
+                .thenApply(body -> {
+                    var text = body.candidates.getFirst().content().parts().getFirst().text();
+                    metrics.observe("payload_size_bytes", "Size of the payloads", Metrics.SIZE_BUCKETS, text.length(), "kind", "gemini_response");
+                    return text;
+                });
+    }
+
+    private static RequestBody requestBody(String query) {
+        return new RequestBody(
                 Collections.singletonList(
                         new Content(
                                 Collections.singletonList(new Part(query))
@@ -60,13 +149,6 @@ public class GeminiService {
                 ),
                 new Config("application/json")
         );
-
-        return client.POST("/v1beta/models/gemini-2.0-flash:generateContent")
-                .addQueryParameter("key", apiKey)
-                .withRequestBody(request)
-                .responseBodyAs(ResponseBody.class)
-                .invokeAsync()
-                .thenApply(res -> res.body().candidates.getFirst().content().parts().getFirst().text());
     }
 
     public CompletionStage<ResumeFields> convertMarkdownToJson(String markdown) {
@@ -77,21 +159,203 @@ public class GeminiService {
                 <form>%s</form>.
                 Return JSON ONLY, no markdown.
                 """.formatted(markdown);
-        return call(query)
-                .thenApply(result -> {
-                            logger.info(result);
-                            return JsonSupport.decodeJson(ResumeFields.class, ByteString.fromString(result));
-                        }
-                );
+        return conversions.apply(Utils.sha256(ByteString.fromString(markdown)), () ->
+                retry.apply("Gemini markdown conversion", () ->
+                        call(query, convertHedging)
+                                .thenApply(result -> {
+                                            logger.info(result);
+                                            return JsonSupport.decodeJson(ResumeFields.class, ByteString.fromString(result));
+                                        }
+                                )));
+    }
+
+    /**
+     * Questions are answered in chunks, sent concurrently.
+     * A chunk holds at most {@code maxQuestions} questions and its estimated prompt size stays
+     * within {@code maxPromptTokens}; a failed chunk is retried on its own {@code retries} times.
+     * With {@code streaming}, each answer is handed over as soon as Gemini has generated it.
+     */
+    public record Chunking(int maxQuestions, int maxPromptTokens, int retries, boolean streaming) {
+        public static Chunking fromConfig(com.typesafe.config.Config config) {
+            return new Chunking(config.getInt("max-questions-per-chunk"), config.getInt("max-prompt-tokens"),
+                    config.getInt("chunk-retries"), config.getBoolean("streaming"));
+        }
     }
 
     public CompletionStage<Answers> answerToQuestions(String resumeInfo, List<Question> questions) {
+        return answerToQuestions(resumeInfo, questions, __ -> {});
+    }
+
+    /**
+     * Answers the questions, passing each answer to {@code onAnswer} as soon as it is available:
+     * while the reply streams in, or when its chunk completes if streaming is off.
+     * An answer may be passed again when its chunk is retried.
+     */
+    public CompletionStage<Answers> answerToQuestions(String resumeInfo, List<Question> questions, Consumer<Answer> onAnswer) {
+
+        var index = index(resumeInfo);
+        // sized from the sections selected for the questions of each chunk, as they are added
+        var chunks = index.isPresent()
+                ? chunk(chunk -> selected(index.get(), chunk), questions, chunking)
+                : chunk(resumeInfo, questions, chunking);
+        logger.info("Answering {} questions in {} chunks [streaming={}, sections={}]", questions.size(), chunks.size(), chunking.streaming(), index.isPresent());
+
+        // A streamed chunk is not hedged: two replies would hand over each answer twice
+        var pending = chunks.stream()
+                .map(chunk -> {
+                    var context = index.map(i -> context(i, chunk)).orElse(resumeInfo);
+                    return (chunking.streaming()
+                            ? chunkRetry.apply("Gemini answers chunk", () -> streamChunk(context, chunk, onAnswer))
+                            : chunkRetry.apply("Gemini answers chunk", () -> answerChunk(context, chunk))
+                                    .thenApply(answers -> {
+                                        answers.answers().forEach(onAnswer);
+                                        return answers;
+                                    }))
+                            .toCompletableFuture();
+                })
+                .toList();
+
+        return CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new))
+                .thenApply(__ -> new Answers(pending.stream()
+                        .flatMap(chunk -> chunk.join().answers().stream())
+                        .toList()));
+    }
+
+    // Index of a resume long enough to be sent in sections
+    private Optional<ResumeIndex> index(String resumeInfo) {
+        if (!selection.enabled() || resumeInfo == null || estimateTokens(resumeInfo) < selection.minResumeTokens())
+            return Optional.empty();
+
+        var key = Utils.sha256(ByteString.fromString(resumeInfo));
+        var cached = indexes.get(key);
+        if (cached.isPresent()) return cached;
+
+        var index = new ResumeIndex(resumeInfo);
+        indexes.put(key, index);
+        return Optional.of(index);
+    }
+
+    // The sections relevant to the questions of a chunk
+    private String context(ResumeIndex index, List<Question> questions) {
+        var context = selected(index, questions);
+        metrics.add("resume_context_chars_total", "Resume characters of the answer prompts, whole and sent", index.size(), "kind", "whole");
+        metrics.add("resume_context_chars_total", "Resume characters of the answer prompts, whole and sent", context.length(), "kind", "sent");
+        return context;
+    }
+
+    private String selected(ResumeIndex index, List<Question> questions) {
+        var query = questions.stream().map(Question::field).collect(Collectors.joining("\n"));
+        return index.select(query, selection.topKSections(), selection.maxTokens());
+    }
+
+    private CompletionStage<Answers> answerChunk(String resumeInfo, List<Question> questions) {
+        return call(answerPrompt(resumeInfo, questions), answerHedging)
+                .thenApply(result -> {
+                    logger.info(result);
+                    return JsonSupport.decodeJson(Answers.class, ByteString.fromString(result));
+                });
+    }
+
+    private CompletionStage<Answers> streamChunk(String resumeInfo, List<Question> questions, Consumer<Answer> onAnswer) {
+        var prompt = answerPrompt(resumeInfo, questions);
+        metrics.observe("payload_size_bytes", "Size of the payloads", Metrics.SIZE_BUCKETS, prompt.length(), "kind", "gemini_prompt");
+
+        byte[] body;
+        try {
+            body = JsonSupport.getObjectMapper().writeValueAsBytes(requestBody(prompt));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // the key goes in a header: unlike the query parameters of the SDK client, the URI is not encoded for us
+        var request = HttpRequest.newBuilder(URI.create(baseUrl + "/v1beta/models/gemini-2.0-flash:streamGenerateContent?alt=sse"))
+                .header("Content-Type", "application/json")
+                .header("x-goog-api-key", apiKey)
+                .timeout(timeouts.deadline("gemini-stream", prompt.length()))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+
+        return limiter.submit(estimateTokens(prompt), () ->
+                // the request timeout bounds the wait for the headers, the policy the whole reply
+                metrics.time("external_call", () -> timeouts.within("gemini-stream", prompt.length(), () -> {
+                    var stream = new AnswerStream(onAnswer);
+                    return streamingClient.<Answers>sendAsync(request, info -> info.statusCode() == 200
+                                    ? HttpResponse.BodySubscribers.fromLineSubscriber(stream, AnswerStream::result, StandardCharsets.UTF_8, null)
+                                    : HttpResponse.BodySubscribers.<String, Answers>mapping(HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8), error -> {
+                                        logger.error("An error occurred calling Gemini streamGenerateContent: {} {}", info.statusCode(), error);
+                                        throw new HttpStatusException("An error occurred calling Gemini streamGenerateContent", info.statusCode());
+                                    }))
+                            .thenApply(HttpResponse::body);
+                }), "provider", "gemini", "operation", "streamGenerateContent"));
+    }
+
+    /**
+     * Server-sent events of {@code streamGenerateContent}: each {@code data:} line is a partial response
+     * whose text continues the reply. Answers are parsed out of the text as it arrives.
+     */
+    private final class AnswerStream implements Flow.Subscriber<String> {
+
+        private final Consumer<Answer> onAnswer;
+        private final AnswerStreamParser parser = new AnswerStreamParser();
+        private final List<Answer> answers = new ArrayList<>();
+        private final long start = System.nanoTime();
+        private long characters = 0;
+        private RuntimeException failure;
+
+        AnswerStream(Consumer<Answer> onAnswer) {
+            this.onAnswer = onAnswer;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (failure != null || !line.startsWith("data:")) return;
+            try {
+                var event = JsonSupport.getObjectMapper().readTree(line.substring("data:".length()));
+                var text = event.path("candidates").path(0).path("content").path("parts").path(0).path("text").asText("");
+                characters += text.length();
+                parser.feed(text).forEach(this::completed);
+            } catch (IOException | RuntimeException e) {
+                // reported when the stream ends, the response future then fails
+                failure = new IllegalStateException("Malformed Gemini stream", e);
+            }
+        }
+
+        private void completed(Answer answer) {
+            if (answers.isEmpty())
+                metrics.observe("gemini_first_answer_seconds", "Time to the first streamed answer of a chunk", Metrics.LATENCY_BUCKETS,
+                        (System.nanoTime() - start) / 1e9);
+            answers.add(answer);
+            onAnswer.accept(answer);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            logger.error("Gemini stream failed after {} answers", answers.size(), throwable);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        Answers result() {
+            if (failure != null) throw failure;
+            parser.end().forEach(this::completed);
+            metrics.observe("payload_size_bytes", "Size of the payloads", Metrics.SIZE_BUCKETS, characters, "kind", "gemini_response");
+            return new Answers(answers);
+        }
+    }
+
+    static String answerPrompt(String resumeInfo, List<Question> questions) {
 
         var questionsXmls = questions.stream()
                 .map(q -> "<question>" + q.question() + "</question>")
                 .collect(Collectors.joining("\n"));
 
-        var query = """
+        return """
                 These are questions about the specific resume.
                 The output must be in JSON format containing a list of pairs question/answer,
                 in the form {{ "answers": [ { "question" : "...", "answer" : "..." }, ... ] }}
@@ -99,10 +363,41 @@ public class GeminiService {
                 <questions>%s</questions>
                 Return JSON ONLY, no markdown.
                 """.formatted(resumeInfo, questionsXmls);
-        return call(query)
-                .thenApply(result -> {
-                    logger.info(result);
-                    return JsonSupport.decodeJson(Answers.class, ByteString.fromString(result));
-                });
+    }
+
+    // Rough token count of a prompt: about 4 characters per token
+    static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    // Greedy split, every chunk has at least one question
+    static List<List<Question>> chunk(String resumeInfo, List<Question> questions, Chunking chunking) {
+        return chunk(__ -> resumeInfo, questions, chunking);
+    }
+
+    // Chunks of questions for prompts carrying the resume context of their questions
+    static List<List<Question>> chunk(Function<List<Question>, String> context, List<Question> questions, Chunking chunking) {
+        var promptTokens = estimateTokens(answerPrompt("", List.of()));
+        var chunks = new ArrayList<List<Question>>();
+        var current = new ArrayList<Question>();
+        var questionsTokens = 0;
+
+        for (var question : questions) {
+            var questionTokens = estimateTokens("<question>" + question.question() + "</question>\n");
+            if (!current.isEmpty()) {
+                var candidate = new ArrayList<>(current);
+                candidate.add(question);
+                var tokens = promptTokens + estimateTokens(context.apply(candidate)) + questionsTokens + questionTokens;
+                if (current.size() >= chunking.maxQuestions() || tokens > chunking.maxPromptTokens()) {
+                    chunks.add(current);
+                    current = new ArrayList<>();
+                    questionsTokens = 0;
+                }
+            }
+            current.add(question);
+            questionsTokens += questionTokens;
+        }
+        if (!current.isEmpty()) chunks.add(current);
+        return chunks;
     }
 }
@@ -0,0 +1,104 @@
+package com.example.resume.repository;
+
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Hedged requests for idempotent calls: when a call is slower than the observed latency percentile,
+ * a duplicate is fired and the first successful response wins.
+ * <p>
+ * No hedge is sent until {@code minSamples} latencies have been observed, nor when it cannot start at once.
+ */
+public class Hedging {
+
+    private static final Logger logger = LoggerFactory.getLogger(Hedging.class);
+
+    public record Settings(boolean enabled, double percentile, Duration minDelay, int minSamples, int window) {
+        public static Settings fromConfig(Config config) {
+            return new Settings(
+                    config.getBoolean("enabled"),
+                    config.getDouble("percentile"),
+                    config.getDuration("min-delay"),
+                    config.getInt("min-samples"),
+                    config.getInt("window"));
+        }
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final ScheduledExecutorService scheduler;
+    private final LatencyTracker latencies;
+
+    public Hedging(String name, Settings settings, ScheduledExecutorService scheduler) {
+        this.name = name;
+        this.settings = settings;
+        this.scheduler = scheduler;
+        this.latencies = new LatencyTracker(settings.window());
+    }
+
+    public <T> CompletionStage<T> apply(Supplier<CompletionStage<T>> call) {
+        return apply(call, hedge -> Optional.of(hedge.get()));
+    }
+
+    /**
+     * @param admitHedge runs the hedge if it can start at once, e.g. with a free permit of a rate limiter
+     */
+    public <T> CompletionStage<T> apply(Supplier<CompletionStage<T>> call,
+                                        Function<Supplier<CompletionStage<T>>, Optional<CompletionStage<T>>> admitHedge) {
+        var hedgeAfter = latencies.percentile(settings.percentile(), settings.minSamples())
+                .map(p -> p.compareTo(settings.minDelay()) < 0 ? settings.minDelay() : p);
+
+        if (!settings.enabled() || hedgeAfter.isEmpty())
+            return timed(call);
+
+        var result = new CompletableFuture<T>();
+        var failures = new AtomicInteger();
+        var attempts = new AtomicInteger(1);
+        var lastError = new AtomicReference<Throwable>();
+
+        BiConsumer<T, Throwable> onComplete = (value, error) -> {
+            if (error == null) result.complete(value);
+            else {
+                lastError.set(error);
+                if (failures.incrementAndGet() == attempts.get()) result.completeExceptionally(error);
+            }
+        };
+
+        timed(call).whenComplete(onComplete);
+        scheduler.schedule(() -> {
+            if (result.isDone()) return;
+            // counted before it starts, so a failure of the first request meanwhile waits for the hedge
+            attempts.incrementAndGet();
+            var hedge = admitHedge.apply(() -> timed(call));
+            if (hedge.isPresent()) {
+                logger.info("{} slower than {} ms, sending a hedged request.", name, hedgeAfter.get().toMillis());
+                hedge.get().whenComplete(onComplete);
+            } else {
+                logger.info("{} slower than {} ms, no permit free for a hedged request.", name, hedgeAfter.get().toMillis());
+                if (attempts.decrementAndGet() == failures.get()) result.completeExceptionally(lastError.get());
+            }
+        }, hedgeAfter.get().toMillis(), TimeUnit.MILLISECONDS);
+
+        return result;
+    }
+
+    private <T> CompletionStage<T> timed(Supplier<CompletionStage<T>> call) {
+        var start = System.nanoTime();
+        return call.get().whenComplete((__, error) -> {
+            if (error == null) latencies.record(Duration.ofNanos(System.nanoTime() - start));
+        });
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.resume.repository;
+
+/**
+ * An external call answered with an unsuccessful HTTP status.
+ */
+public class HttpStatusException extends RuntimeException {
+
+    private final int status;
+
+    public HttpStatusException(String message, int status) {
+        super(message + ": " + status);
+        this.status = status;
+    }
+
+    public int status() {
+        return status;
+    }
+}
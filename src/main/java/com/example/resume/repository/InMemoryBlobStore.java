@@ -0,0 +1,50 @@
+package com.example.resume.repository;
+
+import akka.stream.Materializer;
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+import com.example.resume.domain.BlobRef;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.example.resume.Utils.sha256;
+
+/**
+ * Blob store for tests and local experiments: blobs live as long as the JVM.
+ */
+public class InMemoryBlobStore implements BlobStore {
+
+    private final ConcurrentHashMap<String, ByteString> blobs = new ConcurrentHashMap<>();
+
+    @Override
+    public CompletionStage<BlobRef> put(ByteString bytes, String contentType) {
+        var digest = sha256(bytes);
+        blobs.putIfAbsent(digest, bytes);
+        return CompletableFuture.completedStage(new BlobRef(digest, bytes.length(), contentType));
+    }
+
+    @Override
+    public CompletionStage<BlobRef> put(Source<ByteString, ?> data, String contentType, Materializer materializer) {
+        return data.runFold(ByteString.emptyByteString(), ByteString::concat, materializer)
+                .thenCompose(bytes -> put(bytes.compact(), contentType));
+    }
+
+    @Override
+    public CompletionStage<ByteString> get(BlobRef ref) {
+        var bytes = blobs.get(ref.digest());
+        if (bytes == null)
+            return CompletableFuture.failedStage(new NoSuchElementException("Blob not found " + ref.digest()));
+        return CompletableFuture.completedStage(bytes);
+    }
+
+    @Override
+    public CompletionStage<Boolean> exists(BlobRef ref) {
+        if (!BlobRef.isDigest(ref.digest()))
+            return CompletableFuture.failedStage(new IllegalArgumentException("Invalid blob digest " + ref.digest()));
+        var bytes = blobs.get(ref.digest());
+        return CompletableFuture.completedStage(bytes != null && bytes.length() == ref.size());
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.resume.repository;
+
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Durable record of the LlamaIndex parse jobs and of their completion notifications, shared by the nodes:
+ * the webhook is called on any node, not necessarily on the one awaiting the job.
+ */
+public interface JobNotifications {
+
+    /**
+     * True once LlamaIndex has notified the completion of the job, on any node.
+     */
+    CompletionStage<Boolean> notified(UUID jobId);
+}
@@ -0,0 +1,208 @@
+package com.example.resume.repository;
+
+import com.example.resume.Metrics;
+import com.example.resume.domain.JobResponse;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Polls a LlamaIndex parse job until it leaves the PENDING status or the deadline expires.
+ * <p>
+ * No thread is held while waiting: each poll is a task on the shared scheduler that fires the
+ * request and re-schedules itself from the response callback, with exponential backoff and jitter.
+ * <p>
+ * When LlamaIndex notifies the completion of a job to this node ({@link #notifyCompleted}), its next poll runs at once.
+ * Notifications received by the other nodes are recorded in the {@link JobNotifications}: the awaiting node
+ * reads them every {@code checkInterval}, an internal read instead of a LlamaIndex request, and polls at once
+ * when the job is notified. The scheduled polls are then only a slow sweep for lost notifications.
+ */
+public class JobPoller {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobPoller.class);
+
+    public record Settings(Duration initialDelay, Duration maxDelay, double multiplier, double jitter) {
+
+        public static Settings fromConfig(Config config) {
+            return new Settings(
+                    config.getDuration("initial-delay"),
+                    config.getDuration("max-delay"),
+                    config.getDouble("multiplier"),
+                    config.getDouble("jitter"));
+        }
+
+        // initialDelay * multiplier^attempt, capped at maxDelay, then spread by +/- jitter
+        long delayMillis(int attempt) {
+            var base = Math.min(initialDelay.toMillis() * Math.pow(multiplier, attempt), maxDelay.toMillis());
+            var spread = 1 + jitter * (ThreadLocalRandom.current().nextDouble() * 2 - 1);
+            return Math.max(0, Math.round(base * spread));
+        }
+    }
+
+    // Notifications kept until the next poll is scheduled, e.g. when received before the upload response
+    private static final int MAX_EARLY_NOTIFICATIONS = 1000;
+    private static final long EARLY_NOTIFICATION_TTL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final ScheduledExecutorService scheduler;
+    private final Settings settings;
+    // null without the webhook: the polls alone find the completion
+    private final JobNotifications notifications;
+    private final Duration checkInterval;
+    private final Metrics metrics;
+
+    // Next poll of each awaited job, run early on notification
+    private final Map<UUID, Runnable> nextPolls = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> earlyNotifications = new ConcurrentHashMap<>();
+    // Jobs whose notification was read from the JobNotifications
+    private final Set<UUID> relayed = ConcurrentHashMap.newKeySet();
+
+    public JobPoller(ScheduledExecutorService scheduler, Settings settings, Metrics metrics) {
+        this(scheduler, settings, null, Duration.ZERO, metrics);
+    }
+
+    public JobPoller(ScheduledExecutorService scheduler, Settings settings, JobNotifications notifications, Duration checkInterval,
+                     Metrics metrics) {
+        this.scheduler = scheduler;
+        this.settings = settings;
+        this.notifications = notifications;
+        this.checkInterval = checkInterval;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Completes with the latest known job: either no longer PENDING, or still PENDING when the deadline expired.
+     */
+    public CompletionStage<JobResponse> awaitCompletion(JobResponse job, Duration timeout, Function<UUID, CompletionStage<JobResponse>> fetch) {
+        var result = new CompletableFuture<JobResponse>();
+        if (job.status() != JobResponse.JobStatus.PENDING) {
+            completed(job, 0, result);
+        } else {
+            var deadline = System.nanoTime() + timeout.toNanos();
+            schedule(job, 0, deadline, fetch, result);
+        }
+        return result;
+    }
+
+    /**
+     * Polls the job now if it is awaited on this node, instead of at its scheduled time.
+     *
+     * @return false if the job is not awaited on this node: its awaiting node reads the notification from the
+     * {@link JobNotifications}
+     */
+    public boolean notifyCompleted(UUID jobId) {
+        // also seen by the next schedule, if a poll is already in flight and gets the job still PENDING
+        rememberEarly(jobId);
+        var poll = nextPolls.get(jobId);
+        if (poll == null) {
+            metrics.increment("llamaindex_job_notifications_total", "Job completion notifications received", "outcome", "not_awaited");
+            return false;
+        }
+
+        logger.info("Job {} completion notified. Polling now.", jobId);
+        metrics.increment("llamaindex_job_notifications_total", "Job completion notifications received", "outcome", "awaited");
+        poll.run();
+        return true;
+    }
+
+    private void rememberEarly(UUID jobId) {
+        var now = System.nanoTime();
+        if (earlyNotifications.size() >= MAX_EARLY_NOTIFICATIONS)
+            earlyNotifications.values().removeIf(at -> now - at > EARLY_NOTIFICATION_TTL_NANOS);
+        if (earlyNotifications.size() < MAX_EARLY_NOTIFICATIONS)
+            earlyNotifications.put(jobId, now);
+    }
+
+    private void completed(JobResponse job, int polls, CompletableFuture<JobResponse> result) {
+        nextPolls.remove(job.id());
+        earlyNotifications.remove(job.id());
+        relayed.remove(job.id());
+        metrics.observe("llamaindex_job_polls", "Status polls per parse job", Metrics.COUNT_BUCKETS, polls);
+        result.complete(job);
+    }
+
+    private void schedule(JobResponse latest, int attempt, long deadline,
+                          Function<UUID, CompletionStage<JobResponse>> fetch,
+                          CompletableFuture<JobResponse> result) {
+
+        var notified = earlyNotifications.remove(latest.id()) != null;
+        var delay = notified ? 0 : settings.delayMillis(attempt);
+        if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay) > deadline) {
+            logger.warn("Job {} is still {} at its deadline. Giving up.", latest.id(), latest.status());
+            completed(latest, attempt, result);
+            return;
+        }
+
+        logger.info("Job {} is still {}. Polling again in {} ms.", latest.id(), latest.status(), delay);
+        // run by the scheduler or by a notification, whichever comes first
+        var started = new AtomicBoolean();
+        Runnable poll = () -> {
+            if (!started.compareAndSet(false, true)) return;
+            CompletionStage<JobResponse> fetched;
+            try {
+                fetched = fetch.apply(latest.id());
+            } catch (RuntimeException e) {
+                // thrown in a scheduled task, it would be swallowed by the scheduler and the wait never complete
+                logger.error("Unable to poll the job {}.", latest.id(), e);
+                nextPolls.remove(latest.id());
+                relayed.remove(latest.id());
+                result.completeExceptionally(e);
+                return;
+            }
+            fetched.whenComplete((job, error) -> {
+                if (error != null) {
+                    logger.warn("Unable to get the job status of {}. Retry...", latest.id());
+                    schedule(latest, attempt + 1, deadline, fetch, result);
+                } else if (job.status() == JobResponse.JobStatus.PENDING) {
+                    schedule(job, attempt + 1, deadline, fetch, result);
+                } else {
+                    completed(job, attempt + 1, result);
+                }
+            });
+        };
+        nextPolls.put(latest.id(), poll);
+        scheduler.schedule(poll, delay, TimeUnit.MILLISECONDS);
+        if (notifications != null && !notified && !relayed.contains(latest.id()))
+            check(latest.id(), System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay), poll);
+    }
+
+    // Reads the notification of the job, notified on any node, until its next poll is due
+    private void check(UUID jobId, long pollAt, Runnable poll) {
+        var delay = Math.min(checkInterval.toNanos(), pollAt - System.nanoTime());
+        if (delay <= 0) return;
+
+        scheduler.schedule(() -> {
+            // polled meanwhile: the next poll has its own checks
+            if (nextPolls.get(jobId) != poll) return;
+            try {
+                notifications.notified(jobId).whenComplete((notified, error) -> {
+                    if (error != null) logger.warn("Unable to read the notification of job {}.", jobId, error);
+                    if (Boolean.TRUE.equals(notified)) {
+                        logger.info("Job {} completion notified to another node. Polling now.", jobId);
+                        metrics.increment("llamaindex_job_notifications_total", "Job completion notifications received", "outcome", "relayed");
+                        // read once: if the job is still PENDING, the next polls follow the sweep schedule
+                        relayed.add(jobId);
+                        poll.run();
+                    } else {
+                        check(jobId, pollAt, poll);
+                    }
+                });
+            } catch (RuntimeException e) {
+                logger.warn("Unable to read the notification of job {}.", jobId, e);
+                check(jobId, pollAt, poll);
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+}
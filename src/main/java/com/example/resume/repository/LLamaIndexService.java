@@ -2,24 +2,25 @@ package com.example.resume.repository;
 
 import akka.http.javadsl.model.ContentTypes;
 import akka.http.javadsl.model.HttpEntities;
+import akka.http.javadsl.model.HttpEntity;
+import akka.http.javadsl.model.Multipart;
 import akka.http.javadsl.model.Multiparts;
 import akka.javasdk.http.HttpClient;
 import akka.javasdk.http.HttpClientProvider;
 import akka.util.ByteString;
+import com.example.resume.Metrics;
 import com.example.resume.domain.JobResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
 
-import static com.example.resume.Utils.sleep;
-import static java.lang.System.currentTimeMillis;
-import static java.time.Duration.ofSeconds;
-
 
 public class LLamaIndexService {
 
@@ -27,72 +28,77 @@ public class LLamaIndexService {
 
     private final String apiKey;
     private final HttpClient client;
-
-    public LLamaIndexService(String apiKey, HttpClientProvider clientProvider) {
+    // Notified by LlamaIndex when a job completes, null to rely on polling only
+    private final String webhookUrl;
+    private final JobPoller poller;
+    private final RateLimiter limiter;
+    private final Retry retry;
+    private final TimeoutPolicy timeouts;
+    private final Metrics metrics;
+
+    public LLamaIndexService(String apiKey, String baseUrl, String webhookUrl, HttpClientProvider clientProvider, JobPoller poller,
+                             RateLimiter limiter, Retry retry, TimeoutPolicy timeouts, Metrics metrics) {
         this.apiKey = apiKey;
-        this.client = clientProvider.httpClientFor("https://api.cloud.eu.llamaindex.ai");
+        this.client = clientProvider.httpClientFor(baseUrl);
+        this.webhookUrl = webhookUrl;
+        this.poller = poller;
+        this.limiter = limiter;
+        this.retry = retry;
+        this.timeouts = timeouts;
+        this.metrics = metrics;
     }
 
-    public CompletionStage<JobResponse> uploadAndParseApplicationForm(ByteString file)  {
+    public RateLimiter limiter() {
+        return limiter;
+    }
 
-        var entity = Multiparts.createStrictFormDataFromParts(
-                Multiparts.createFormDataBodyPartStrict(
-                        "file",
-                        HttpEntities.create(ContentTypes.APPLICATION_OCTET_STREAM, file),
-                        Collections.singletonMap("filename", "application-form.pdf")
-                ),
-                Multiparts.createFormDataBodyPartStrict(
-                     "content_guideline_instruction",
-                     HttpEntities.create("This is a job application form. Create a list of all the fields that need to be filled in.")
-                ),
-                Multiparts.createFormDataBodyPartStrict(
-                     "formatting_instruction",
-                     HttpEntities.create("Return a bulleted list of the fields ONLY.")
-                )
-        ).toEntity();
-        var bytes = entity.getData().toArray();
+    /**
+     * What LlamaIndex is asked to extract from an uploaded PDF.
+     * The same file parsed with different instructions produces a different markdown.
+     */
+    public record ParseInstructions(String filename, String contentGuideline, String formatting) {
 
-        return client.POST("/api/v1/parsing/upload")
-                .addHeader("Accept", "application/json")
-                .addHeader("Authorization", "Bearer" + apiKey)
-                .withRequestBody(entity.getContentType(), bytes)
-                .withTimeout(ofSeconds(5))
-                .responseBodyAs(JobResponse.class)
-                .invokeAsync()
-                .thenApply(response -> {
-                    if (response.status().isSuccess()) {
-                        logger.info("File {} uploaded successfully", file);
-                        return response.body();
-                    }
-                    else {
-                        logger.error("An error occurred calling POST /api/parsing/upload: {}", response);
-                        throw new RuntimeException("An error occurred calling POST /api/parsing/upload");
-                    }
-                });
+        // Canonical text of the instructions, part of the content digest of a parse result
+        public String fingerprint() {
+            return "content_guideline_instruction=" + contentGuideline + "\nformatting_instruction=" + formatting;
+        }
+    }
+
+    public static final ParseInstructions APPLICATION_FORM = new ParseInstructions(
+            "application-form.pdf",
+            "This is a job application form. Create a list of all the fields that need to be filled in.",
+            "Return a bulleted list of the fields ONLY.");
+
+    public static final ParseInstructions RESUME = new ParseInstructions(
+            "resume.pdf",
+            "This is a resume, gather related facts together and format it as bullet points with headers",
+            null);
+
+    public CompletionStage<JobResponse> uploadAndParseApplicationForm(ByteString file)  {
+        return uploadAndParse(APPLICATION_FORM, file);
     }
 
     public CompletionStage<JobResponse> uploadAndParseResume(ByteString file)  {
+        return uploadAndParse(RESUME, file);
+    }
 
-        var entity = Multiparts.createStrictFormDataFromParts(
-                Multiparts.createFormDataBodyPartStrict(
-                        "file",
-                        HttpEntities.create(ContentTypes.APPLICATION_OCTET_STREAM, file),
-                        Collections.singletonMap("filename", "resume.pdf")
-                ),
-                Multiparts.createFormDataBodyPartStrict(
-                     "content_guideline_instruction",
-                     HttpEntities.create("This is a resume, gather related facts together and format it as bullet points with headers")
-                )
-        ).toEntity();
-        var bytes = entity.getData().toArray();
+    public CompletionStage<JobResponse> uploadAndParse(ParseInstructions instructions, ByteString file)  {
 
-        return client.POST("/api/v1/parsing/upload")
-                .addHeader("Accept", "application/json")
-                .addHeader("Authorization", "Bearer" + apiKey)
-                .withRequestBody(entity.getContentType(), bytes)
-                .withTimeout(ofSeconds(5))
-                .responseBodyAs(JobResponse.class)
-                .invokeAsync()
+        var entity = uploadEntity(instructions, file, webhookUrl);
+        var bytes = entity.getData().toArray();
+        metrics.observe("payload_size_bytes", "Size of the payloads", Metrics.SIZE_BUCKETS, bytes.length, "kind", "llamaindex_upload");
+
+        // the deadline of an upload grows with the size of the PDF
+        return limiter.submit(0, () ->
+                metrics.time("external_call", () -> timeouts.observe("llamaindex-upload", bytes.length, () ->
+                        client.POST("/api/v1/parsing/upload")
+                                .addHeader("Accept", "application/json")
+                                .addHeader("Authorization", "Bearer" + apiKey)
+                                .withRequestBody(entity.getContentType(), bytes)
+                                .withTimeout(timeouts.deadline("llamaindex-upload", bytes.length))
+                                .responseBodyAs(JobResponse.class)
+                                .invokeAsync()),
+                        "provider", "llamaindex", "operation", "upload"))
                 .thenApply(response -> {
                     if (response.status().isSuccess()) {
                         logger.info("File {} uploaded successfully", file);
@@ -100,25 +106,59 @@ public class LLamaIndexService {
                     }
                     else {
                         logger.error("An error occurred calling POST /api/parsing/upload: {}", response);
-                        throw new RuntimeException("An error occurred calling POST /api/parsing/upload");
+                        throw new HttpStatusException("An error occurred calling POST /api/parsing/upload", response.status().intValue());
                     }
                 });
     }
 
+    static HttpEntity.Strict uploadEntity(ParseInstructions instructions, ByteString file) {
+        return uploadEntity(instructions, file, null);
+    }
+
+    // Multipart body of an upload: the file, the parsing instructions and the URL notified on completion
+    static HttpEntity.Strict uploadEntity(ParseInstructions instructions, ByteString file, String webhookUrl) {
+        var parts = new ArrayList<Multipart.FormData.BodyPart.Strict>();
+        parts.add(Multiparts.createFormDataBodyPartStrict(
+                "file",
+                HttpEntities.create(ContentTypes.APPLICATION_OCTET_STREAM, file),
+                Collections.singletonMap("filename", instructions.filename())
+        ));
+        parts.add(Multiparts.createFormDataBodyPartStrict(
+                "content_guideline_instruction",
+                HttpEntities.create(instructions.contentGuideline())
+        ));
+        if (instructions.formatting() != null)
+            parts.add(Multiparts.createFormDataBodyPartStrict(
+                    "formatting_instruction",
+                    HttpEntities.create(instructions.formatting())
+            ));
+        if (webhookUrl != null)
+            parts.add(Multiparts.createFormDataBodyPartStrict(
+                    "webhook_url",
+                    HttpEntities.create(webhookUrl)
+            ));
+
+        return Multiparts.createStrictFormDataFromParts(parts.toArray(Multipart.FormData.BodyPart.Strict[]::new)).toEntity();
+    }
+
     public CompletionStage<JobResponse> getJob(UUID id) {
 
         logger.info("Getting job {}", id);
 
-        return client.GET("/api/v1/parsing/job/" + id)
-                .addHeader("Accept", "application/json")
-                .addHeader("Authorization", "Bearer" + apiKey)
-                .responseBodyAs(JobResponse.class)
-                .invokeAsync()
+        return limiter.submit(0, () ->
+                metrics.time("external_call", () -> timeouts.observe("llamaindex-job", 0, () ->
+                        client.GET("/api/v1/parsing/job/" + id)
+                                .addHeader("Accept", "application/json")
+                                .addHeader("Authorization", "Bearer" + apiKey)
+                                .withTimeout(timeouts.deadline("llamaindex-job", 0))
+                                .responseBodyAs(JobResponse.class)
+                                .invokeAsync()),
+                        "provider", "llamaindex", "operation", "job"))
                 .thenApply(response -> {
                     if (response.status().isSuccess()) return response.body();
                     else {
                         logger.error("An error occurred calling GET /api/parsing/job/:id: {}", response);
-                        throw new RuntimeException("An error occurred calling POST /api/parsing/job/:id");
+                        throw new HttpStatusException("An error occurred calling GET /api/parsing/job/:id", response.status().intValue());
                     }
                 });
     }
@@ -127,54 +167,63 @@ public class LLamaIndexService {
 
         logger.info("Getting result for job {}", id);
 
-        return client.GET("/api/v1/parsing/job/" + id + "/result/raw/markdown")
-                .addHeader("Accept", "application/json")
-                .addHeader("Authorization", "Bearer" + apiKey)
-                .responseBodyAs(String.class)
-                .invokeAsync()
+        return limiter.submit(0, () ->
+                metrics.time("external_call", () -> timeouts.observe("llamaindex-result", 0, () ->
+                        client.GET("/api/v1/parsing/job/" + id + "/result/raw/markdown")
+                                .addHeader("Accept", "application/json")
+                                .addHeader("Authorization", "Bearer" + apiKey)
+                                .withTimeout(timeouts.deadline("llamaindex-result", 0))
+                                .responseBodyAs(String.class)
+                                .invokeAsync()),
+                        "provider", "llamaindex", "operation", "result"))
                 .thenApply(response -> {
                     if (response.status().isSuccess()) {
                         logger.info("Result is ready. Size: {}", response.body().length());
+                        metrics.observe("payload_size_bytes", "Size of the payloads", Metrics.SIZE_BUCKETS, response.body().length(), "kind", "llamaindex_markdown");
                         return response.body();
                     }
                     else {
                         logger.error("An error occurred calling GET /api/parsing/job/:id/result/raw/markdown: {}", response);
-                        throw new RuntimeException("An error occurred calling POST /api/parsing/job/:id/result/raw/markdown");
+                        throw new HttpStatusException("An error occurred calling GET /api/parsing/job/:id/result/raw/markdown", response.status().intValue());
                     }
                 });
     }
 
-    public CompletionStage<String> uploadAndWaitForCompletion(Function<ByteString, CompletionStage<JobResponse>> action, ByteString file) {
-
-        return action.apply(file)
-                .thenApply(job -> {
-
-                    logger.info("Submitted file {}. Job id {} is in status {}.", file, job.id(), job.status());
-
-                    var latestJob = job;
-                    var timeout = ofSeconds(30).toMillis();
-                    var deadline = currentTimeMillis() + timeout;
+    public CompletionStage<String> uploadAndWaitForCompletion(ParseInstructions instructions, ByteString file) {
+        return uploadAndWaitForCompletion(instructions, file, __ -> CompletableFuture.completedStage(null));
+    }
 
-                    // polling with timeout
-                    while (latestJob.status() == JobResponse.JobStatus.PENDING && currentTimeMillis() < deadline) {
+    /**
+     * @param onUpload called with the uploaded job before waiting for it, e.g. to record it
+     */
+    public CompletionStage<String> uploadAndWaitForCompletion(ParseInstructions instructions, ByteString file,
+                                                              Function<JobResponse, CompletionStage<?>> onUpload) {
+        // an upload that reached LlamaIndex may have created a job: sending it again would parse the file twice
+        return uploadAndWaitForCompletion(f -> retry.apply("LlamaIndex upload", Retry::isUnsent, () -> uploadAndParse(instructions, f)), file, onUpload);
+    }
 
-                        logger.info("Job {} is still {}. Waiting...", job.id(), job.status());
-                        sleep(3000);
-
-                        // wait for completion
-                        try {
-                            latestJob = getJob(job.id()).toCompletableFuture().join();
-                        } catch (Exception e) {
-                            logger.warn("Unable to get the job status of {}. Retry...", job.id());
-                        }
-                    }
+    public CompletionStage<String> uploadAndWaitForCompletion(Function<ByteString, CompletionStage<JobResponse>> action, ByteString file,
+                                                              Function<JobResponse, CompletionStage<?>> onUpload) {
 
+        var start = System.nanoTime();
+        return action.apply(file)
+                .thenCompose(job -> onUpload.apply(job).thenApply(__ -> job))
+                .thenCompose(job -> {
+                    logger.info("Submitted file {}. Job id {} is in status {}.", file, job.id(), job.status());
+                    // polling with a deadline growing with the size of the PDF, without blocking the caller
+                    return poller.awaitCompletion(job, timeouts.deadline("llamaindex-parse", file.size()), this::getJob);
+                })
+                .whenComplete((job, error) -> {
+                    // jobs still PENDING at their deadline would only record the deadline
+                    if (job != null && job.status() != JobResponse.JobStatus.PENDING)
+                        timeouts.record("llamaindex-parse", file.size(), Duration.ofNanos(System.nanoTime() - start));
+                })
+                .thenCompose(latestJob -> {
                     if (latestJob.status() != JobResponse.JobStatus.SUCCESS)
                         throw new RuntimeException("Invalid job status " + latestJob.status());
 
-                    return latestJob;
-                })
-                .thenComposeAsync(job -> getResultMarkdown(job.id()));
+                    return retry.apply("LlamaIndex result", () -> getResultMarkdown(latestJob.id()));
+                });
     }
 
 
@@ -0,0 +1,43 @@
+package com.example.resume.repository;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Rolling window of the latest latencies of one kind of call, to derive percentiles from.
+ */
+public class LatencyTracker {
+
+    private final long[] samples;
+    private int next = 0;
+    private int count = 0;
+
+    public LatencyTracker(int window) {
+        this.samples = new long[window];
+    }
+
+    public synchronized void record(Duration latency) {
+        samples[next] = latency.toNanos();
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    /**
+     * @return empty until {@code minSamples} latencies have been recorded
+     */
+    public Optional<Duration> percentile(double percentile, int minSamples) {
+        long[] sorted;
+        synchronized (this) {
+            if (count < Math.max(1, minSamples)) return Optional.empty();
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        var index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return Optional.of(Duration.ofNanos(sorted[Math.max(0, Math.min(index, sorted.length - 1))]));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.resume.repository;
+
+import akka.stream.Materializer;
+import akka.stream.javadsl.FileIO;
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+import com.example.resume.domain.BlobRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.HexFormat;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.resume.Utils.sha256;
+
+/**
+ * Blob store on the local filesystem. A blob is stored as {@code <directory>/<first 2 hex chars>/<digest>}.
+ * File operations block, so they run on the given executor.
+ */
+public class LocalFileBlobStore implements BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileBlobStore.class);
+
+    private final Path directory;
+    private final Executor ioExecutor;
+
+    public LocalFileBlobStore(Path directory, Executor ioExecutor) {
+        this.directory = directory;
+        this.ioExecutor = ioExecutor;
+    }
+
+    @Override
+    public CompletionStage<BlobRef> put(ByteString bytes, String contentType) {
+        return CompletableFuture.supplyAsync(() -> {
+            var digest = sha256(bytes);
+            var path = pathOf(digest);
+            try {
+                if (Files.notExists(path)) {
+                    Files.createDirectories(path.getParent());
+                    // write aside, then move: readers never see a partial blob
+                    var temp = Files.createTempFile(path.getParent(), digest, ".tmp");
+                    try (var channel = Files.newByteChannel(temp, StandardOpenOption.WRITE)) {
+                        for (var buffer : bytes.getByteBuffers()) {
+                            while (buffer.hasRemaining()) channel.write(buffer);
+                        }
+                    }
+                    moveInPlace(temp, path);
+                    logger.info("Stored blob {} [size={}]", digest, bytes.length());
+                }
+                return new BlobRef(digest, bytes.length(), contentType);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, ioExecutor);
+    }
+
+    @Override
+    public CompletionStage<BlobRef> put(Source<ByteString, ?> data, String contentType, Materializer materializer) {
+        var digest = sha256();
+        var size = new AtomicLong();
+
+        return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Files.createDirectories(directory);
+                        return Files.createTempFile(directory, "upload", ".tmp");
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, ioExecutor)
+                .thenCompose(temp -> data
+                        .map(chunk -> {
+                            chunk.getByteBuffers().forEach(digest::update);
+                            size.addAndGet(chunk.length());
+                            return chunk;
+                        })
+                        .runWith(FileIO.toPath(temp), materializer)
+                        .thenApplyAsync(__ -> {
+                            var hex = HexFormat.of().formatHex(digest.digest());
+                            var path = pathOf(hex);
+                            try {
+                                if (Files.exists(path)) {
+                                    Files.delete(temp);
+                                } else {
+                                    Files.createDirectories(path.getParent());
+                                    moveInPlace(temp, path);
+                                    logger.info("Stored blob {} [size={}]", hex, size.get());
+                                }
+                                return new BlobRef(hex, size.get(), contentType);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }, ioExecutor)
+                        .whenComplete((__, error) -> {
+                            if (error != null) deleteQuietly(temp);
+                        }));
+    }
+
+    @Override
+    public CompletionStage<ByteString> get(BlobRef ref) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return ByteString.fromArrayUnsafe(Files.readAllBytes(pathOf(ref.digest())));
+            } catch (NoSuchFileException e) {
+                throw new NoSuchElementException("Blob not found " + ref.digest());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, ioExecutor);
+    }
+
+    @Override
+    public CompletionStage<Boolean> exists(BlobRef ref) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                var path = pathOf(ref.digest());
+                return Files.exists(path) && Files.size(path) == ref.size();
+            } catch (NoSuchFileException e) {
+                return false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, ioExecutor);
+    }
+
+    // Digests come from the clients too (batch requests): anything but a SHA-256 hex digest could escape the directory
+    Path pathOf(String digest) {
+        if (!BlobRef.isDigest(digest))
+            throw new IllegalArgumentException("Invalid blob digest " + digest);
+        return directory.resolve(digest.substring(0, 2)).resolve(digest);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Unable to delete {}", path, e);
+        }
+    }
+
+    static void moveInPlace(Path temp, Path path) throws IOException {
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
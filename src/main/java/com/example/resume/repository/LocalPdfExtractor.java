@@ -0,0 +1,125 @@
+package com.example.resume.repository;
+
+import akka.util.ByteString;
+import com.typesafe.config.Config;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * In-process extraction of the text layer of born-digital PDFs, with PDFBox.
+ * <p>
+ * The text is used only when it looks complete and readable: enough pages with text, and text made
+ * of letters, digits and punctuation rather than the garbage of a broken font encoding. Otherwise
+ * (scans, images, encrypted or damaged files) the result is empty and the caller falls back to LlamaIndex.
+ * Parsing blocks, so it runs on the given executor.
+ */
+public class LocalPdfExtractor {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalPdfExtractor.class);
+
+    public record Settings(boolean enabled, int minCharsPerPage, double minTextPageRatio, double minReadableRatio, int maxPages) {
+        public static Settings fromConfig(Config config) {
+            return new Settings(
+                    config.getBoolean("enabled"),
+                    config.getInt("min-chars-per-page"),
+                    config.getDouble("min-text-page-ratio"),
+                    config.getDouble("min-readable-ratio"),
+                    config.getInt("max-pages"));
+        }
+    }
+
+    private final Settings settings;
+    private final Executor executor;
+
+    public LocalPdfExtractor(Settings settings, Executor executor) {
+        this.settings = settings;
+        this.executor = executor;
+    }
+
+    /**
+     * Markdown of the PDF text layer, empty if the PDF has no usable one.
+     */
+    public CompletionStage<Optional<String>> extract(ByteString pdf) {
+        if (!settings.enabled()) return CompletableFuture.completedStage(Optional.empty());
+        return CompletableFuture.supplyAsync(() -> extractNow(pdf), executor);
+    }
+
+    private Optional<String> extractNow(ByteString pdf) {
+        try (var document = Loader.loadPDF(pdf.toArray())) {
+            var pageCount = document.getNumberOfPages();
+            if (pageCount == 0 || pageCount > settings.maxPages() || document.isEncrypted()) {
+                logger.info("No local extraction [pages={}, encrypted={}]", pageCount, document.isEncrypted());
+                return Optional.empty();
+            }
+
+            var pages = pages(document);
+            var textPages = pages.stream().filter(page -> page.strip().length() >= settings.minCharsPerPage()).count();
+            var text = String.join("\n", pages);
+            var readable = readableRatio(text);
+
+            if (textPages < settings.minTextPageRatio() * pageCount || readable < settings.minReadableRatio()) {
+                logger.info("Text layer not usable [pages={}, pagesWithText={}, readable={}]", pageCount, textPages, readable);
+                return Optional.empty();
+            }
+
+            logger.info("Text layer extracted locally [pages={}, chars={}]", pageCount, text.length());
+            return Optional.of(toMarkdown(pages));
+        } catch (IOException | RuntimeException e) {
+            logger.info("Local extraction failed, falling back to the cloud parser", e);
+            return Optional.empty();
+        }
+    }
+
+    private static List<String> pages(PDDocument document) throws IOException {
+        var stripper = new PDFTextStripper();
+        stripper.setSortByPosition(true);
+        var pages = new ArrayList<String>();
+        for (int page = 1; page <= document.getNumberOfPages(); page++) {
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            pages.add(stripper.getText(document));
+        }
+        return pages;
+    }
+
+    // Share of the characters that are letters, digits, whitespace or common punctuation
+    static double readableRatio(String text) {
+        if (text.isEmpty()) return 0;
+        long readable = text.chars()
+                .filter(c -> Character.isLetterOrDigit(c) || Character.isWhitespace(c) || ".,;:!?()-/&@'\"%+*#•–—_".indexOf(c) >= 0)
+                .count();
+        return (double) readable / text.length();
+    }
+
+    // Short lines that are all capitals or end with a colon are section headings
+    static String toMarkdown(List<String> pages) {
+        var markdown = new StringBuilder();
+        for (var page : pages) {
+            for (var line : page.lines().map(String::strip).toList()) {
+                if (line.isEmpty()) continue;
+                if (heading(line)) markdown.append("\n## ").append(line.endsWith(":") ? line.substring(0, line.length() - 1) : line).append('\n');
+                else if (line.startsWith("•") || line.startsWith("-") || line.startsWith("*")) markdown.append("- ").append(line.substring(1).strip()).append('\n');
+                else markdown.append(line).append('\n');
+            }
+            markdown.append('\n');
+        }
+        return markdown.toString().strip();
+    }
+
+    private static boolean heading(String line) {
+        if (line.length() > 40) return false;
+        var letters = line.chars().filter(Character::isLetter).count();
+        return letters > 2 && (line.endsWith(":") || line.equals(line.toUpperCase()));
+    }
+}
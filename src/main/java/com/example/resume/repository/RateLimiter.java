@@ -0,0 +1,185 @@
+package com.example.resume.repository;
+
+import com.example.resume.domain.LimiterStats;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Shared limiter of the calls to one provider, to stay below its quotas instead of getting 429s.
+ * <p>
+ * A call is admitted when a request token is available (requests per second, with a burst),
+ * enough LLM tokens are available (tokens per minute) and fewer than {@code maxInFlight} calls
+ * are running. Otherwise it waits, without holding a thread, in a FIFO queue of at most
+ * {@code maxQueued} calls; beyond that it is rejected. Optional calls, e.g. hedged duplicates,
+ * only run if admitted at once ({@link #trySubmit}).
+ */
+public class RateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiter.class);
+
+    /**
+     * @param tokensPerMinute LLM tokens per minute, 0 for no limit
+     */
+    public record Settings(double requestsPerSecond, int burst, long tokensPerMinute, int maxInFlight, int maxQueued) {
+        public static Settings fromConfig(Config config) {
+            return new Settings(
+                    config.getDouble("requests-per-second"),
+                    config.getInt("burst"),
+                    config.getLong("tokens-per-minute"),
+                    config.getInt("max-in-flight"),
+                    config.getInt("max-queued"));
+        }
+    }
+
+    private record Waiting(long tokens, long enqueuedAt, CompletableFuture<Void> permit) {}
+
+    private final String name;
+    private final Settings settings;
+    private final ScheduledExecutorService scheduler;
+
+    // guarded by this
+    private final ArrayDeque<Waiting> queue = new ArrayDeque<>();
+    private double requestTokens;
+    private double llmTokens;
+    private long refilledAt = System.nanoTime();
+    private int inFlight = 0;
+    private boolean drainScheduled = false;
+    private long admitted = 0;
+    private long rejected = 0;
+    private long totalWaitNanos = 0;
+    private long maxWaitNanos = 0;
+
+    public RateLimiter(String name, Settings settings, ScheduledExecutorService scheduler) {
+        this.name = name;
+        this.settings = settings;
+        this.scheduler = scheduler;
+        this.requestTokens = settings.burst();
+        this.llmTokens = settings.tokensPerMinute();
+    }
+
+    /**
+     * Runs the call once admitted.
+     *
+     * @param tokens estimated LLM tokens used by the call
+     */
+    public <T> CompletionStage<T> submit(long tokens, Supplier<CompletionStage<T>> call) {
+        var permit = new CompletableFuture<Void>();
+        synchronized (this) {
+            if (queue.size() >= settings.maxQueued()) {
+                rejected++;
+                logger.warn("Rejecting a call to {}: {} calls already waiting.", name, queue.size());
+                return CompletableFuture.failedStage(new RejectedExecutionException(
+                        "Too many calls waiting for " + name + " (" + queue.size() + ")"));
+            }
+            queue.add(new Waiting(tokens, System.nanoTime(), permit));
+        }
+        drain();
+
+        return run(permit, call);
+    }
+
+    /**
+     * Runs the call only if admitted at once: nothing waiting and a permit free. It is never queued.
+     *
+     * @param tokens estimated LLM tokens used by the call
+     * @return empty if the call was not admitted
+     */
+    public <T> Optional<CompletionStage<T>> trySubmit(long tokens, Supplier<CompletionStage<T>> call) {
+        synchronized (this) {
+            refill();
+            var needed = settings.tokensPerMinute() > 0 ? Math.min(tokens, settings.tokensPerMinute()) : 0;
+            if (!queue.isEmpty() || inFlight >= settings.maxInFlight() || requestTokens < 1 || llmTokens < needed)
+                return Optional.empty();
+
+            requestTokens -= 1;
+            llmTokens -= needed;
+            inFlight++;
+            admitted++;
+        }
+        return Optional.of(run(CompletableFuture.completedFuture(null), call));
+    }
+
+    private <T> CompletionStage<T> run(CompletableFuture<Void> permit, Supplier<CompletionStage<T>> call) {
+        return permit
+                .thenCompose(__ -> call.get())
+                .whenComplete((__, error) -> {
+                    synchronized (this) {
+                        inFlight--;
+                    }
+                    drain();
+                });
+    }
+
+    private void drain() {
+        var admittedNow = new ArrayDeque<CompletableFuture<Void>>();
+        long retryInNanos = 0;
+
+        synchronized (this) {
+            refill();
+            while (!queue.isEmpty() && inFlight < settings.maxInFlight()) {
+                var next = queue.peek();
+                var tokens = settings.tokensPerMinute() > 0 ? Math.min(next.tokens(), settings.tokensPerMinute()) : 0;
+
+                if (requestTokens < 1 || llmTokens < tokens) {
+                    retryInNanos = nanosUntilAvailable(tokens);
+                    break;
+                }
+
+                queue.poll();
+                requestTokens -= 1;
+                llmTokens -= tokens;
+                inFlight++;
+                admitted++;
+                var waited = System.nanoTime() - next.enqueuedAt();
+                totalWaitNanos += waited;
+                maxWaitNanos = Math.max(maxWaitNanos, waited);
+                admittedNow.add(next.permit());
+            }
+
+            if (retryInNanos > 0 && !drainScheduled) {
+                drainScheduled = true;
+                scheduler.schedule(() -> {
+                    synchronized (this) {
+                        drainScheduled = false;
+                    }
+                    drain();
+                }, retryInNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        // run the calls outside the lock
+        admittedNow.forEach(permit -> permit.complete(null));
+    }
+
+    private void refill() {
+        var now = System.nanoTime();
+        var elapsedSeconds = (now - refilledAt) / 1e9;
+        refilledAt = now;
+        requestTokens = Math.min(settings.burst(), requestTokens + elapsedSeconds * settings.requestsPerSecond());
+        if (settings.tokensPerMinute() > 0)
+            llmTokens = Math.min(settings.tokensPerMinute(), llmTokens + elapsedSeconds * settings.tokensPerMinute() / 60.0);
+    }
+
+    private long nanosUntilAvailable(long tokens) {
+        var requestWait = requestTokens >= 1 ? 0 : (1 - requestTokens) / settings.requestsPerSecond();
+        var tokenWait = llmTokens >= tokens ? 0 : (tokens - llmTokens) / (settings.tokensPerMinute() / 60.0);
+        return Math.max(1_000_000L, (long) (Math.max(requestWait, tokenWait) * 1e9));
+    }
+
+    public synchronized LimiterStats stats() {
+        return new LimiterStats(
+                name,
+                queue.size(),
+                inFlight,
+                admitted,
+                rejected,
+                admitted == 0 ? 0 : totalWaitNanos / 1e6 / admitted,
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.resume.repository;
+
+import com.typesafe.config.Config;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * In-process BM25 index over the sections of a resume markdown, split at its headers.
+ * <p>
+ * Selects the sections relevant to a set of questions, so a prompt carries only part of a long resume.
+ * The first part of the resume (name, contacts), before the second header when the resume starts
+ * with one, is always selected, cut to the token budget if longer.
+ */
+public final class ResumeIndex {
+
+    /**
+     * Resumes shorter than {@code minResumeTokens} are sent whole. Longer ones are sent as their
+     * {@code topKSections} most relevant sections, within {@code maxTokens}.
+     */
+    public record Selection(boolean enabled, int topKSections, int maxTokens, int minResumeTokens, long maxMemorySize) {
+        public static Selection fromConfig(Config config) {
+            return new Selection(
+                    config.getBoolean("enabled"),
+                    config.getInt("top-k-sections"),
+                    config.getInt("max-tokens"),
+                    config.getInt("min-resume-tokens"),
+                    config.getBytes("max-memory-size"));
+        }
+    }
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final Pattern HEADER = Pattern.compile("^#{1,6}\\s.*");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "candidate", "do", "does", "for", "from", "has", "have",
+            "how", "in", "is", "it", "of", "on", "or", "question", "the", "this", "to", "was", "what", "which",
+            "who", "with", "would", "you", "your", "about", "answer");
+
+    private record Section(int position, String text, Map<String, Integer> termFrequencies, int length) {}
+
+    private final String markdown;
+    private final String preamble;
+    private final List<Section> sections;
+    private final Map<String, Integer> documentFrequencies = new HashMap<>();
+    private final double averageLength;
+
+    public ResumeIndex(String markdown) {
+        this.markdown = markdown;
+
+        var parts = split(markdown);
+        // a resume usually starts with a "# Name" header: its section is the preamble
+        var first = parts.getFirst().isBlank() && parts.size() > 1 ? 1 : 0;
+        this.preamble = parts.get(first);
+        this.sections = new ArrayList<>();
+        for (int i = first + 1; i < parts.size(); i++) {
+            var terms = terms(parts.get(i));
+            var frequencies = new HashMap<String, Integer>();
+            terms.forEach(term -> frequencies.merge(term, 1, Integer::sum));
+            frequencies.keySet().forEach(term -> documentFrequencies.merge(term, 1, Integer::sum));
+            sections.add(new Section(i, parts.get(i), frequencies, terms.size()));
+        }
+        this.averageLength = sections.stream().mapToInt(Section::length).average().orElse(1);
+    }
+
+    public int size() {
+        return markdown.length();
+    }
+
+    /**
+     * The preamble and the best sections for the query, in their original order, within the token budget.
+     */
+    public String select(String query, int topK, int maxTokens) {
+        var queryTerms = new HashSet<>(terms(query));
+        var ranked = sections.stream()
+                .sorted(Comparator.comparingDouble((Section section) -> -score(section, queryTerms)))
+                .limit(topK)
+                .toList();
+
+        var preamble = truncate(this.preamble, maxTokens);
+        var budget = maxTokens - GeminiService.estimateTokens(preamble);
+        var selected = new ArrayList<Section>();
+        for (var section : ranked) {
+            var tokens = GeminiService.estimateTokens(section.text());
+            if (tokens > budget) continue;
+            selected.add(section);
+            budget -= tokens;
+        }
+        selected.sort(Comparator.comparingInt(Section::position));
+
+        var context = new StringBuilder(preamble);
+        selected.forEach(section -> context.append(section.text()));
+        return context.toString().strip();
+    }
+
+    // The start of the text, within the tokens
+    private static String truncate(String text, int maxTokens) {
+        if (GeminiService.estimateTokens(text) <= maxTokens) return text;
+        var end = Math.max(0, maxTokens) * 4;
+        if (end > 0 && Character.isHighSurrogate(text.charAt(end - 1))) end--;
+        return text.substring(0, end);
+    }
+
+    private double score(Section section, Set<String> queryTerms) {
+        var score = 0.0;
+        for (var term : queryTerms) {
+            var frequency = section.termFrequencies().getOrDefault(term, 0);
+            if (frequency == 0) continue;
+            var documents = documentFrequencies.get(term);
+            var idf = Math.log(1 + (sections.size() - documents + 0.5) / (documents + 0.5));
+            score += idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * section.length() / averageLength));
+        }
+        return score;
+    }
+
+    // The text before the first header, then one part per header with its content
+    private static List<String> split(String markdown) {
+        var parts = new ArrayList<String>();
+        var current = new StringBuilder();
+        for (var line : markdown.split("\n", -1)) {
+            if (HEADER.matcher(line).matches()) {
+                parts.add(current.toString());
+                current = new StringBuilder();
+            }
+            current.append(line).append('\n');
+        }
+        parts.add(current.toString());
+        return parts;
+    }
+
+    static List<String> terms(String text) {
+        return Arrays.stream(NON_WORD.split(text.toLowerCase(Locale.ROOT)))
+                .filter(term -> term.length() > 1 && !STOP_WORDS.contains(term))
+                .toList();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.resume.repository;
+
+import akka.stream.ConnectionException;
+import akka.stream.StreamTcpException;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.http.HttpConnectTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static com.example.resume.Utils.delay;
+
+/**
+ * Retries a failed external call with exponential backoff and jitter.
+ * Waiting between two attempts does not hold a thread.
+ * <p>
+ * Only transient failures are retried by default: 429, 5xx and connection errors. A 4xx would fail again,
+ * and a call that timed out may still be processed by the server.
+ */
+public class Retry {
+
+    private static final Logger logger = LoggerFactory.getLogger(Retry.class);
+
+    public record Settings(int maxRetries, Duration initialBackoff, Duration maxBackoff, double multiplier, double jitter) {
+
+        public static Settings fromConfig(Config config) {
+            return new Settings(
+                    config.getInt("max-retries"),
+                    config.getDuration("initial-backoff"),
+                    config.getDuration("max-backoff"),
+                    config.getDouble("multiplier"),
+                    config.getDouble("jitter"));
+        }
+
+        Duration backoff(int attempt) {
+            var base = Math.min(initialBackoff.toMillis() * Math.pow(multiplier, attempt), maxBackoff.toMillis());
+            var spread = 1 + jitter * (ThreadLocalRandom.current().nextDouble() * 2 - 1);
+            return Duration.ofMillis(Math.max(0, Math.round(base * spread)));
+        }
+    }
+
+    private final Settings settings;
+    private final ScheduledExecutorService scheduler;
+
+    public Retry(Settings settings, ScheduledExecutorService scheduler) {
+        this.settings = settings;
+        this.scheduler = scheduler;
+    }
+
+    public Retry withMaxRetries(int maxRetries) {
+        return new Retry(new Settings(maxRetries, settings.initialBackoff(), settings.maxBackoff(), settings.multiplier(), settings.jitter()), scheduler);
+    }
+
+    public <T> CompletionStage<T> apply(String call, Supplier<CompletionStage<T>> attempt) {
+        return apply(call, Retry::isTransient, attempt);
+    }
+
+    /**
+     * @param retryable the failures worth another attempt, e.g. {@link #isUnsent} for a call that is not idempotent
+     */
+    public <T> CompletionStage<T> apply(String call, Predicate<Throwable> retryable, Supplier<CompletionStage<T>> attempt) {
+        return attempt(call, retryable, attempt, 0);
+    }
+
+    private <T> CompletionStage<T> attempt(String call, Predicate<Throwable> retryable, Supplier<CompletionStage<T>> attempt, int retry) {
+        return attempt.get()
+                .handle((result, error) -> {
+                    if (error == null) return CompletableFuture.completedStage(result);
+                    if (retry >= settings.maxRetries() || !retryable.test(error)) return CompletableFuture.<T>failedStage(error);
+
+                    var backoff = settings.backoff(retry);
+                    logger.warn("{} failed, retry {}/{} in {} ms.", call, retry + 1, settings.maxRetries(), backoff.toMillis(), error);
+                    return delay(scheduler, backoff).thenCompose(__ -> attempt(call, retryable, attempt, retry + 1));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    // 429, 5xx and connection errors
+    public static boolean isTransient(Throwable error) {
+        var cause = cause(error);
+        if (cause instanceof HttpStatusException e) return e.status() == 429 || e.status() >= 500;
+        return cause instanceof SocketException || cause instanceof HttpConnectTimeoutException || cause instanceof StreamTcpException;
+    }
+
+    // Failures where the server did not take the request: 429 and connections never established
+    public static boolean isUnsent(Throwable error) {
+        var cause = cause(error);
+        if (cause instanceof HttpStatusException e) return e.status() == 429;
+        return cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException || cause instanceof ConnectionException;
+    }
+
+    private static Throwable cause(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null)
+            error = error.getCause();
+        return error;
+    }
+}
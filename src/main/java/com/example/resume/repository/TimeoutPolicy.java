@@ -0,0 +1,131 @@
+package com.example.resume.repository;
+
+import com.example.resume.Metrics;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Deadlines of the external calls, derived from their observed latencies, and timeouts of the workflow steps.
+ * <p>
+ * Latencies are recorded per operation, divided by the size of their payload in {@code sizeUnit}s
+ * (at least 1), so a 20 MB PDF and a 200 KB one are comparable. The deadline of a call is the
+ * {@code percentile} of these latencies, times {@code headroom}, times its own size in units, within the
+ * {@code floor} and {@code ceiling} of its operation. Until {@code minSamples} latencies have been
+ * observed, {@code initial} (per size unit) is used instead.
+ * <p>
+ * A workflow step only gets the {@code ceiling} of its operation: its branches store their results when the
+ * step ends, so failing it early would discard the ones already completed. The calls within it have deadlines.
+ */
+public class TimeoutPolicy {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimeoutPolicy.class);
+
+    public record Bounds(Duration floor, Duration ceiling, Duration initial, long sizeUnit) {
+        public static Bounds fromConfig(Config config) {
+            return new Bounds(
+                    config.hasPath("floor") ? config.getDuration("floor") : Duration.ZERO,
+                    config.getDuration("ceiling"),
+                    config.hasPath("initial") ? config.getDuration("initial") : config.getDuration("ceiling"),
+                    config.hasPath("size-unit") ? config.getBytes("size-unit") : Long.MAX_VALUE);
+        }
+
+        // Payloads up to one unit are not scaled
+        double scale(long size) {
+            return Math.max(1.0, (double) size / sizeUnit);
+        }
+    }
+
+    public record Settings(double percentile, double headroom, int minSamples, int window, Map<String, Bounds> operations) {
+        public static Settings fromConfig(Config config) {
+            var operations = new HashMap<String, Bounds>();
+            var configured = config.getConfig("operations");
+            for (var operation : configured.root().keySet())
+                operations.put(operation, Bounds.fromConfig(configured.getConfig(operation)));
+            return new Settings(
+                    config.getDouble("percentile"),
+                    config.getDouble("headroom"),
+                    config.getInt("min-samples"),
+                    config.getInt("window"),
+                    operations);
+        }
+    }
+
+    private final Settings settings;
+    private final Metrics metrics;
+    private final Map<String, LatencyTracker> latencies = new ConcurrentHashMap<>();
+
+    public TimeoutPolicy(Settings settings, Metrics metrics) {
+        this.settings = settings;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Deadline of one call of the operation, with a payload of {@code size} bytes (characters for prompts).
+     */
+    public Duration deadline(String operation, long size) {
+        var bounds = bounds(operation);
+        var scale = bounds.scale(size);
+        double nanos = tracker(operation).percentile(settings.percentile(), settings.minSamples())
+                .map(latency -> latency.toNanos() * settings.headroom() * scale)
+                .orElse(bounds.initial().toNanos() * scale);
+        var deadline = Duration.ofNanos(Math.max(bounds.floor().toNanos(), Math.min(bounds.ceiling().toNanos(), (long) nanos)));
+        metrics.observe("timeout_deadline_seconds", "Deadlines given to the calls", Metrics.LATENCY_BUCKETS,
+                deadline.toNanos() / 1e9, "operation", operation);
+        return deadline;
+    }
+
+    // Longest deadline of the operation, whatever its payload: also the timeout of the workflow steps
+    public Duration ceiling(String operation) {
+        return bounds(operation).ceiling();
+    }
+
+    public void record(String operation, long size, Duration latency) {
+        tracker(operation).record(Duration.ofNanos((long) (latency.toNanos() / bounds(operation).scale(size))));
+    }
+
+    /**
+     * Records the latency of the call when it succeeds. The call enforces its deadline itself, e.g. as a request timeout.
+     */
+    public <T> CompletionStage<T> observe(String operation, long size, Supplier<CompletionStage<T>> call) {
+        var start = System.nanoTime();
+        return call.get().whenComplete((__, error) -> {
+            if (error == null) record(operation, size, Duration.ofNanos(System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * Fails the call with a {@link TimeoutException} past its deadline, and records its latency when it succeeds.
+     */
+    public <T> CompletionStage<T> within(String operation, long size, Supplier<CompletionStage<T>> call) {
+        var deadline = deadline(operation, size);
+        return observe(operation, size, call)
+                .toCompletableFuture()
+                .orTimeout(deadline.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((__, error) -> {
+                    if (error instanceof TimeoutException) {
+                        logger.warn("{} exceeded its deadline of {} ms [size={}]", operation, deadline.toMillis(), size);
+                        metrics.increment("timeouts_total", "Calls past their deadline", "operation", operation);
+                    }
+                });
+    }
+
+    private Bounds bounds(String operation) {
+        var bounds = settings.operations().get(operation);
+        if (bounds == null) throw new IllegalArgumentException("No timeout bounds for " + operation);
+        return bounds;
+    }
+
+    private LatencyTracker tracker(String operation) {
+        return latencies.computeIfAbsent(operation, __ -> new LatencyTracker(settings.window()));
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.resume;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SingleFlightTest {
+
+    private final Metrics metrics = new Metrics();
+    private final SingleFlight<String> flights = new SingleFlight<>("test", metrics);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private long count(String outcome) {
+        var prefix = "single_flight_calls_total{operation=\"test\",outcome=\"" + outcome + "\"} ";
+        return metrics.scrape().lines()
+                .filter(line -> line.startsWith(prefix))
+                .mapToLong(line -> Long.parseLong(line.substring(prefix.length())))
+                .findFirst()
+                .orElse(0);
+    }
+
+    @Test
+    public void sharesTheCallOfConcurrentIdenticalKeys() throws Exception {
+        var response = new CompletableFuture<String>();
+        var start = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        var results = new ArrayList<CompletableFuture<CompletionStage<String>>>();
+        try {
+            for (var i = 0; i < 8; i++)
+                results.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return flights.apply("form", () -> {
+                        calls.incrementAndGet();
+                        return response;
+                    });
+                }, callers));
+            start.countDown();
+            var stages = new ArrayList<CompletionStage<String>>();
+            for (var result : results) stages.add(result.get(5, TimeUnit.SECONDS));
+
+            response.complete("questions");
+
+            for (var stage : stages) assertEquals("questions", stage.toCompletableFuture().get(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+            assertEquals(1, count("executed"));
+            assertEquals(7, count("coalesced"));
+            assertEquals(0, flights.inFlight());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void runsDifferentKeysOnTheirOwn() {
+        flights.apply("first", () -> {
+            calls.incrementAndGet();
+            return new CompletableFuture<String>();
+        });
+        flights.apply("second", () -> {
+            calls.incrementAndGet();
+            return new CompletableFuture<String>();
+        });
+
+        assertEquals(2, calls.get());
+        assertEquals(0, count("coalesced"));
+    }
+
+    @Test
+    public void neverCachesAFailedFlight() {
+        var failed = flights.apply("form", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.<String>failedStage(new IllegalStateException("unavailable"));
+        });
+        assertThrows(Exception.class, () -> failed.toCompletableFuture().join());
+
+        var retried = flights.apply("form", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedStage("questions");
+        });
+
+        assertEquals("questions", retried.toCompletableFuture().join());
+        assertEquals(2, calls.get());
+        assertEquals(0, count("coalesced"));
+    }
+
+    @Test
+    public void failsTheCallersOfAFlightThrowingAtOnce() {
+        var first = flights.apply("form", () -> {
+            throw new IllegalStateException("unavailable");
+        });
+
+        assertThrows(Exception.class, () -> first.toCompletableFuture().join());
+        assertEquals(0, flights.inFlight());
+    }
+
+    @Test
+    public void isolatesTheStagesOfTheCallers() {
+        var response = new CompletableFuture<String>();
+        var first = flights.apply("form", () -> response);
+        var second = flights.apply("form", () -> response);
+
+        // a caller cancelling its stage does not affect the other one
+        first.toCompletableFuture().cancel(false);
+        response.complete("questions");
+
+        assertEquals("questions", second.toCompletableFuture().join());
+        assertTrue(first.toCompletableFuture().isCancelled());
+    }
+}
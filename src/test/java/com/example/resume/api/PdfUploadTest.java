@@ -0,0 +1,101 @@
+package com.example.resume.api;
+
+import akka.actor.ActorSystem;
+import akka.http.javadsl.model.ContentTypes;
+import akka.http.javadsl.model.HttpEntities;
+import akka.http.javadsl.model.HttpEntity;
+import akka.http.javadsl.model.MediaTypes;
+import akka.http.javadsl.model.StatusCodes;
+import akka.javasdk.http.HttpException;
+import akka.stream.Materializer;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PdfUploadTest {
+
+    private final ActorSystem system = ActorSystem.create("PdfUploadTest");
+    private final Materializer materializer = Materializer.matFromSystem(system);
+    private final PdfUpload.Limits limits = new PdfUpload.Limits(64, 16);
+
+    @AfterEach
+    public void shutdown() {
+        system.terminate();
+    }
+
+    // A streamed body, received in the given chunks
+    private static HttpEntity pdf(String... chunks) {
+        return HttpEntities.create(ContentTypes.create(MediaTypes.APPLICATION_PDF),
+                Source.from(List.of(chunks)).map(ByteString::fromString));
+    }
+
+    private ByteString read(HttpEntity entity) throws Exception {
+        return PdfUpload.validated(entity, limits)
+                .runWith(Sink.fold(ByteString.emptyByteString(), ByteString::concat), materializer)
+                .toCompletableFuture()
+                .get(5, TimeUnit.SECONDS);
+    }
+
+    private void assertRejected(HttpEntity entity, int status) {
+        var error = assertThrows(ExecutionException.class, () -> read(entity));
+        var rejection = assertInstanceOf(HttpException.class, error.getCause());
+        assertEquals(status, rejection.getStatusCode().intValue());
+    }
+
+    @Test
+    public void acceptsAPdfWithTheMagicNumberSplitAcrossChunks() throws Exception {
+        assertEquals(ByteString.fromString("%PDF-1.7 body"), read(pdf("%P", "D", "F-1.7", " body")));
+    }
+
+    @Test
+    public void slicesLargeChunks() throws Exception {
+        var body = "%PDF-" + "x".repeat(40);
+        var slices = PdfUpload.validated(pdf(body), limits)
+                .runWith(Sink.seq(), materializer)
+                .toCompletableFuture()
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, slices.size());
+        assertTrue(slices.stream().allMatch(slice -> slice.length() <= limits.chunkSize()));
+    }
+
+    @Test
+    public void rejectsAnEmptyBody() {
+        assertRejected(pdf(), StatusCodes.BAD_REQUEST.intValue());
+    }
+
+    @Test
+    public void rejectsABodyShorterThanTheMagicNumber() {
+        assertRejected(pdf("%PD"), StatusCodes.BAD_REQUEST.intValue());
+        assertRejected(pdf("%P", "D"), StatusCodes.BAD_REQUEST.intValue());
+    }
+
+    @Test
+    public void rejectsABodyWithoutTheMagicNumber() {
+        assertRejected(pdf("%P", "NG not a pdf"), StatusCodes.BAD_REQUEST.intValue());
+    }
+
+    @Test
+    public void rejectsAnOversizedBody() {
+        assertRejected(pdf("%PDF-", "x".repeat(40), "x".repeat(40)), StatusCodes.PAYLOAD_TOO_LARGE.intValue());
+    }
+
+    @Test
+    public void rejectsAnOversizedDeclaredLengthBeforeReading() {
+        var entity = HttpEntities.create(ContentTypes.create(MediaTypes.APPLICATION_PDF), ("%PDF-" + "x".repeat(100)).getBytes());
+
+        var error = assertThrows(HttpException.class, () -> PdfUpload.validated(entity, limits));
+        assertEquals(StatusCodes.PAYLOAD_TOO_LARGE.intValue(), error.getStatusCode().intValue());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.resume.application;
+
+import com.example.resume.Metrics;
+import com.example.resume.domain.Priority;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AdmissionSchedulerTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<String> admitted = new ArrayList<>();
+
+    @AfterEach
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // One slot, so the releases show the order of admission
+    private AdmissionScheduler admission(Duration maxWait, Duration leaseTimeout) {
+        var classes = new EnumMap<Priority, AdmissionScheduler.ClassSettings>(Priority.class);
+        classes.put(Priority.INTERACTIVE, new AdmissionScheduler.ClassSettings(8, 1));
+        classes.put(Priority.STANDARD, new AdmissionScheduler.ClassSettings(3, 1));
+        classes.put(Priority.BULK, new AdmissionScheduler.ClassSettings(1, 1));
+        var settings = new AdmissionScheduler.Settings(1, maxWait, leaseTimeout, Priority.INTERACTIVE, classes);
+        return new AdmissionScheduler(settings, scheduler, new Metrics());
+    }
+
+    private void enqueue(AdmissionScheduler admission, String workflowId, Priority priority) {
+        admission.await(workflowId, priority).thenAccept(result -> {
+            if (result.admitted()) synchronized (admitted) {
+                admitted.add(workflowId);
+            }
+        });
+    }
+
+    private List<String> admitted() {
+        synchronized (admitted) {
+            return List.copyOf(admitted);
+        }
+    }
+
+    @Test
+    public void sharesFreedSlotsByWeight() {
+        var admission = admission(Duration.ofMinutes(1), Duration.ofMinutes(10));
+        enqueue(admission, "holder", Priority.INTERACTIVE);
+        IntStream.range(0, 4).forEach(i -> enqueue(admission, "b" + i, Priority.BULK));
+        IntStream.range(0, 20).forEach(i -> enqueue(admission, "i" + i, Priority.INTERACTIVE));
+
+        for (var i = 0; i < 19; i++) admission.release(admitted().get(i));
+
+        // one bulk analysis in nine while interactive ones wait, in arrival order within each class
+        var expected = Stream.of(
+                Stream.of("holder", "b0"),
+                IntStream.range(0, 8).mapToObj(i -> "i" + i),
+                Stream.of("b1"),
+                IntStream.range(8, 16).mapToObj(i -> "i" + i),
+                Stream.of("b2")
+        ).flatMap(s -> s).toList();
+        assertEquals(expected, admitted());
+    }
+
+    @Test
+    public void givesEverySlotToBulkWithoutInteractiveWaiting() {
+        var admission = admission(Duration.ofMinutes(1), Duration.ofMinutes(10));
+        IntStream.range(0, 3).forEach(i -> enqueue(admission, "b" + i, Priority.BULK));
+
+        admission.release("b0");
+        admission.release("b1");
+
+        assertEquals(List.of("b0", "b1", "b2"), admitted());
+    }
+
+    @Test
+    public void reclaimsUnreleasedAdmissionsOnTick() {
+        var admission = admission(Duration.ofMillis(200), Duration.ofMillis(100));
+        enqueue(admission, "holder", Priority.BULK);
+        enqueue(admission, "next", Priority.INTERACTIVE);
+
+        // nobody releases the holder nor calls await again
+        await().atMost(Duration.ofSeconds(5)).until(() -> admission.stats(Priority.INTERACTIVE).running() == 1);
+        assertEquals(0, admission.stats(Priority.BULK).running());
+        assertEquals(0, admission.stats(Priority.INTERACTIVE).queued());
+    }
+}
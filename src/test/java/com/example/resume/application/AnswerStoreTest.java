@@ -0,0 +1,81 @@
+package com.example.resume.application;
+
+import com.example.resume.domain.Answer;
+import com.example.resume.domain.Question;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AnswerStoreTest {
+
+    private final Question experience = new Question("Years of experience");
+    private final Question javaExperience = new Question("Years of Java experience");
+
+    @Test
+    public void matchesOverlappingFieldsOnTheWholeQuestion() {
+        var java = new Answer(javaExperience.question(), "5");
+        var any = new Answer(experience.question(), "12");
+
+        var matched = AnswerStore.match(List.of(experience, javaExperience), List.of(java, any));
+
+        assertEquals(Map.of(experience, any, javaExperience, java), matched);
+    }
+
+    @Test
+    public void matchesTheNormalizedQuestion() {
+        var answer = new Answer("how would you answer this question about the candidate?  YEARS OF JAVA EXPERIENCE:", "5");
+
+        var matched = AnswerStore.match(List.of(experience, javaExperience), List.of(answer));
+
+        assertEquals(Map.of(javaExperience, answer), matched);
+    }
+
+    @Test
+    public void fallsBackToTheExactField() {
+        var answer = new Answer("Years of Java experience?", "5");
+
+        var matched = AnswerStore.match(List.of(experience, javaExperience), List.of(answer));
+
+        assertEquals(Map.of(javaExperience, answer), matched);
+    }
+
+    @Test
+    public void neverMatchesAFieldContainedInTheAnswer() {
+        // "years of experience" is contained in the echoed text, but is not the field that was answered
+        var answer = new Answer("Total years of experience in Java", "5");
+
+        assertTrue(AnswerStore.match(List.of(experience, javaExperience), List.of(answer)).isEmpty());
+    }
+
+    @Test
+    public void neverMatchesAnEmptyField() {
+        var empty = new Question("  :  ");
+        var answer = new Answer("-", "yes");
+
+        assertTrue(AnswerStore.match(List.of(empty), List.of(answer)).isEmpty());
+        assertTrue(AnswerStore.match(List.of(empty), List.of(new Answer(empty.question(), "yes"))).isEmpty());
+    }
+
+    @Test
+    public void leavesAnswersMatchingSeveralQuestionsUnmatched() {
+        var email = new Question("Email:");
+        var sameEmail = new Question("email");
+        var answer = new Answer("email", "jane@example.com");
+
+        assertTrue(AnswerStore.match(List.of(email, sameEmail), List.of(answer)).isEmpty());
+    }
+
+    @Test
+    public void leavesQuestionsMatchedBySeveralAnswersUnmatched() {
+        var first = new Answer(experience.question(), "12");
+        var second = new Answer("Years of experience", "10");
+
+        var matched = AnswerStore.match(List.of(experience, javaExperience), List.of(first, second));
+
+        assertTrue(matched.isEmpty());
+    }
+}
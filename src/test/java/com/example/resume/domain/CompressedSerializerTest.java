@@ -0,0 +1,87 @@
+package com.example.resume.domain;
+
+import akka.javasdk.JsonSupport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompressedSerializerTest {
+
+    public record Compressed(
+            @JsonSerialize(using = CompressedSerializer.class)
+            @JsonDeserialize(using = CompressedDeserializer.class)
+            String text,
+            @JsonSerialize(using = CompressedSerializer.class)
+            @JsonDeserialize(using = CompressedDeserializer.class)
+            List<Answer> answers) {}
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private Compressed roundTrip(Compressed value) throws Exception {
+        return mapper.readValue(mapper.writeValueAsString(value), Compressed.class);
+    }
+
+    private static boolean deflated(String json) {
+        return json.contains("\"codec\":\"deflate\"");
+    }
+
+    @Test
+    public void writesValuesBelowTheThresholdAsTheyAre() throws Exception {
+        // the JSON of the text is its characters and two quotes: one byte below the threshold
+        var text = "x".repeat(CompressedSerializer.THRESHOLD - 3);
+        var value = new Compressed(text, List.of(new Answer("Full name", "Jane Doe")));
+
+        var json = mapper.writeValueAsString(value);
+
+        assertFalse(deflated(json));
+        assertTrue(json.contains("\"text\":\"" + text + "\""));
+        assertEquals(value, roundTrip(value));
+    }
+
+    @Test
+    public void deflatesValuesFromTheThreshold() throws Exception {
+        var text = "x".repeat(CompressedSerializer.THRESHOLD - 2);
+        var answers = IntStream.range(0, 200).mapToObj(i -> new Answer("Question " + i, "Answer " + i)).toList();
+        var value = new Compressed(text, answers);
+
+        var json = mapper.writeValueAsString(value);
+
+        assertTrue(deflated(json));
+        assertFalse(json.contains(text));
+        assertFalse(json.contains("Question 199"));
+        assertEquals(value, roundTrip(value));
+    }
+
+    @Test
+    public void keepsNullValues() throws Exception {
+        var value = new Compressed(null, null);
+
+        assertEquals(value, roundTrip(value));
+    }
+
+    @Test
+    public void readsStatesPersistedBeforeCompression() throws Exception {
+        var resumeInfo = "# Jane Doe\n" + "- Java developer since 2012\n".repeat(300);
+        var snapshot = """
+                {"resume": null, "applicationForm": null, "state": "DOCUMENTS_PROCESSED",
+                 "resumeInfo": %s,
+                 "questions": [{"field": "Years of Java experience"}],
+                 "answers": [{"question": "Years of Java experience", "answer": "12"}],
+                 "formBranch": "DONE", "resumeBranch": "DONE", "extractionAttempts": 1, "batchId": null}
+                """.formatted(mapper.writeValueAsString(resumeInfo));
+
+        var state = JsonSupport.getObjectMapper().readValue(snapshot, ResumeAnalysisState.class);
+
+        assertEquals(resumeInfo, state.resumeInfo());
+        assertEquals(List.of(new Answer("Years of Java experience", "12")), state.answers());
+        assertEquals(ResumeAnalysisState.StateEnum.DOCUMENTS_PROCESSED, state.state());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.resume.repository;
+
+import com.example.resume.domain.Answer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AnswerStreamParserTest {
+
+    private static final String REPLY = """
+            {"answers": [
+              {"question": "Full name", "answer": "Zoë Ångström"},
+              {"question": "Years of \\"Java\\" experience", "answer": 7},
+              {"question": "Languages {or} [dialects]", "answer": "English, 日本語 🎌"}
+            ]}""";
+
+    private static final List<Answer> ANSWERS = List.of(
+            new Answer("Full name", "Zoë Ångström"),
+            new Answer("Years of \"Java\" experience", "7"),
+            new Answer("Languages {or} [dialects]", "English, 日本語 🎌"));
+
+    private static List<Answer> parse(List<String> fragments) {
+        var parser = new AnswerStreamParser();
+        var answers = new ArrayList<Answer>();
+        fragments.forEach(fragment -> answers.addAll(parser.feed(fragment)));
+        answers.addAll(parser.end());
+        return answers;
+    }
+
+    @Test
+    public void parsesTheWholeReply() {
+        assertEquals(ANSWERS, parse(List.of(REPLY)));
+    }
+
+    @Test
+    public void parsesAReplySplitAtAnyCharacter() {
+        // every split of the reply in two fragments: within names, strings, escapes and numbers
+        for (var i = 0; i <= REPLY.length(); i++) {
+            // never split a surrogate pair: the fragments are whole strings
+            if (i > 0 && i < REPLY.length() && Character.isLowSurrogate(REPLY.charAt(i))) continue;
+            assertEquals(ANSWERS, parse(List.of(REPLY.substring(0, i), REPLY.substring(i))), "split at " + i);
+        }
+    }
+
+    @Test
+    public void parsesAReplyStreamedOneCodePointAtATime() {
+        var fragments = REPLY.codePoints().mapToObj(Character::toString).toList();
+        assertEquals(ANSWERS, parse(fragments));
+    }
+
+    @Test
+    public void returnsEachAnswerOnceItsObjectIsClosed() {
+        var parser = new AnswerStreamParser();
+        var firstEnd = REPLY.indexOf('}') + 1;
+
+        assertTrue(parser.feed(REPLY.substring(0, firstEnd - 1)).isEmpty());
+        assertEquals(List.of(ANSWERS.get(0)), parser.feed(REPLY.substring(firstEnd - 1, firstEnd)));
+        assertEquals(ANSWERS.subList(1, 3), parser.feed(REPLY.substring(firstEnd)));
+        assertTrue(parser.end().isEmpty());
+    }
+
+    @Test
+    public void failsOnATruncatedReply() {
+        var parser = new AnswerStreamParser();
+        parser.feed(REPLY.substring(0, REPLY.length() / 2));
+
+        assertThrows(IllegalStateException.class, parser::end);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.resume.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class HedgingTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    // hedges after 50 ms, as soon as one latency is known
+    private final Hedging hedging = new Hedging("test", new Hedging.Settings(true, 0.5, Duration.ofMillis(50), 1, 10), scheduler);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @AfterEach
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void warmUp() {
+        hedging.apply(() -> CompletableFuture.completedStage("fast")).toCompletableFuture().join();
+    }
+
+    // The first call never completes, the next ones complete with the given stage
+    private CompletionStage<String> slowThen(CompletionStage<String> next) {
+        return calls.getAndIncrement() == 0 ? new CompletableFuture<>() : next;
+    }
+
+    @Test
+    public void hedgesASlowCall() throws Exception {
+        warmUp();
+
+        var result = hedging.apply(() -> slowThen(CompletableFuture.completedStage("hedge")));
+
+        assertEquals("hedge", result.toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void skipsTheHedgeWithoutAPermit() throws Exception {
+        warmUp();
+        var first = new CompletableFuture<String>();
+
+        var result = hedging.apply(() -> calls.getAndIncrement() == 0 ? first : CompletableFuture.completedStage("hedge"),
+                hedge -> Optional.empty());
+        Thread.sleep(200);
+        first.complete("first");
+
+        assertEquals("first", result.toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void failsOnceEveryRequestFailed() throws Exception {
+        warmUp();
+        var first = new CompletableFuture<String>();
+
+        var result = hedging.apply(() -> calls.getAndIncrement() == 0 ? first : CompletableFuture.failedStage(new IllegalStateException("hedge")));
+        Thread.sleep(200);
+        // the hedge failed, the first request is still running
+        assertEquals(2, calls.get());
+        assertFalse(result.toCompletableFuture().isDone());
+        first.completeExceptionally(new IllegalStateException("first"));
+
+        assertThrows(Exception.class, () -> result.toCompletableFuture().get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.resume.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RateLimiterTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<String> started = new ArrayList<>();
+
+    @AfterEach
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // A call that records its start and completes with the returned future
+    private CompletableFuture<String> submit(RateLimiter limiter, String name, long tokens) {
+        var response = new CompletableFuture<String>();
+        limiter.submit(tokens, () -> {
+            synchronized (started) {
+                started.add(name);
+            }
+            return response;
+        });
+        return response;
+    }
+
+    private List<String> started() {
+        synchronized (started) {
+            return List.copyOf(started);
+        }
+    }
+
+    @Test
+    public void runsQueuedCallsInArrivalOrder() {
+        var limiter = new RateLimiter("test", new RateLimiter.Settings(1000, 1000, 0, 1, 10), scheduler);
+        var first = submit(limiter, "first", 0);
+        var second = submit(limiter, "second", 0);
+        var third = submit(limiter, "third", 0);
+        assertEquals(List.of("first"), started());
+
+        first.complete("done");
+        assertEquals(List.of("first", "second"), started());
+        second.complete("done");
+        third.complete("done");
+        assertEquals(List.of("first", "second", "third"), started());
+    }
+
+    @Test
+    public void neverLetsASmallCallOvertakeTheHead() {
+        // 6000 tokens per minute: the second call waits about a second for 100 tokens
+        var limiter = new RateLimiter("test", new RateLimiter.Settings(1000, 1000, 6000, 10, 10), scheduler);
+        submit(limiter, "large", 6000).complete("done");
+        submit(limiter, "head", 100).complete("done");
+        submit(limiter, "small", 1).complete("done");
+        assertEquals(List.of("large"), started());
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> started().size() == 3);
+        assertEquals(List.of("large", "head", "small"), started());
+    }
+
+    @Test
+    public void refillsRequestTokensOverTime() {
+        // burst of 2, then one request every 100 ms
+        var limiter = new RateLimiter("test", new RateLimiter.Settings(10, 2, 0, 10, 10), scheduler);
+        var start = System.nanoTime();
+        for (var i = 0; i < 4; i++) submit(limiter, "call" + i, 0).complete("done");
+        assertEquals(List.of("call0", "call1"), started());
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> started().size() == 4);
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofMillis(150)) >= 0);
+        assertEquals(4, limiter.stats().admitted());
+    }
+
+    @Test
+    public void rejectsCallsBeyondTheQueueLimit() {
+        var limiter = new RateLimiter("test", new RateLimiter.Settings(1000, 1000, 0, 1, 1), scheduler);
+        submit(limiter, "running", 0);
+        submit(limiter, "queued", 0);
+
+        CompletionStage<String> rejected = limiter.submit(0, () -> CompletableFuture.completedStage("never"));
+
+        var error = assertThrows(Exception.class, () -> rejected.toCompletableFuture().join());
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+        assertEquals(1, limiter.stats().rejected());
+    }
+
+    @Test
+    public void admitsOptionalCallsOnlyWithAPermitFreeAtOnce() {
+        var limiter = new RateLimiter("test", new RateLimiter.Settings(1000, 1000, 0, 2, 10), scheduler);
+        var first = submit(limiter, "first", 0);
+
+        var hedge = new CompletableFuture<String>();
+        assertTrue(limiter.trySubmit(0, () -> hedge).isPresent());
+        // both permits taken: the optional call is not queued
+        assertTrue(limiter.trySubmit(0, () -> CompletableFuture.completedStage("never")).isEmpty());
+        assertEquals(0, limiter.stats().queued());
+
+        // its permit is released like any other
+        var queued = submit(limiter, "queued", 0);
+        hedge.complete("done");
+        assertEquals(List.of("first", "queued"), started());
+        first.complete("done");
+        queued.complete("done");
+        assertEquals(3, limiter.stats().admitted());
+    }
+}
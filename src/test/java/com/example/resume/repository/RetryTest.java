@@ -0,0 +1,84 @@
+package com.example.resume.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RetryTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Retry retry = new Retry(new Retry.Settings(3, Duration.ofMillis(1), Duration.ofMillis(1), 1, 0), scheduler);
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @AfterEach
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // A call failing with the given error on every attempt
+    private Supplier<CompletionStage<String>> failing(Throwable error) {
+        return () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedStage(error);
+        };
+    }
+
+    private void join(CompletionStage<String> call) {
+        assertThrows(Exception.class, () -> call.toCompletableFuture().join());
+    }
+
+    @Test
+    public void retriesTransientFailures() {
+        join(retry.apply("test", failing(new HttpStatusException("unavailable", 503))));
+        assertEquals(4, attempts.getAndSet(0));
+
+        join(retry.apply("test", failing(new HttpStatusException("too many requests", 429))));
+        assertEquals(4, attempts.getAndSet(0));
+
+        join(retry.apply("test", failing(new ConnectException("refused"))));
+        assertEquals(4, attempts.get());
+    }
+
+    @Test
+    public void neverRetriesClientErrorsNorTimeouts() {
+        join(retry.apply("test", failing(new HttpStatusException("bad request", 400))));
+        assertEquals(1, attempts.getAndSet(0));
+
+        join(retry.apply("test", failing(new TimeoutException())));
+        assertEquals(1, attempts.getAndSet(0));
+
+        join(retry.apply("test", failing(new IllegalStateException("invalid reply"))));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void retriesOnlyUnsentCallsWhenNotIdempotent() {
+        join(retry.apply("test", Retry::isUnsent, failing(new HttpStatusException("unavailable", 503))));
+        assertEquals(1, attempts.getAndSet(0));
+
+        join(retry.apply("test", Retry::isUnsent, failing(new ConnectException("refused"))));
+        assertEquals(4, attempts.get());
+    }
+
+    @Test
+    public void completesWithTheFirstSuccess() {
+        var result = retry.apply("test", () -> attempts.incrementAndGet() < 3
+                ? CompletableFuture.failedStage(new HttpStatusException("unavailable", 502))
+                : CompletableFuture.completedStage("done"));
+
+        assertEquals("done", result.toCompletableFuture().join());
+        assertEquals(3, attempts.get());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.resume.repository;
+
+import com.example.resume.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TimeoutPolicyTest {
+
+    // Deadlines of twice the median, once 3 latencies are known
+    private final TimeoutPolicy timeouts = new TimeoutPolicy(new TimeoutPolicy.Settings(0.5, 2.0, 3, 10, Map.of(
+            "upload", new TimeoutPolicy.Bounds(ofSeconds(1), ofSeconds(60), ofSeconds(10), 1000),
+            "call", new TimeoutPolicy.Bounds(Duration.ZERO, ofMillis(50), ofMillis(50), Long.MAX_VALUE))),
+            new Metrics());
+
+    private void record(Duration latency, int times) {
+        for (var i = 0; i < times; i++) timeouts.record("upload", 0, latency);
+    }
+
+    @Test
+    public void givesTheInitialDeadlineBeforeMinSamples() {
+        record(ofMillis(100), 2);
+
+        assertEquals(ofSeconds(10), timeouts.deadline("upload", 0));
+    }
+
+    @Test
+    public void scalesTheDeadlineWithTheSize() {
+        // initial deadline per unit of 1000 bytes, payloads below one unit are not scaled
+        assertEquals(ofSeconds(10), timeouts.deadline("upload", 500));
+        assertEquals(ofSeconds(30), timeouts.deadline("upload", 3000));
+
+        record(ofSeconds(2), 3);
+        assertEquals(ofSeconds(4), timeouts.deadline("upload", 1000));
+        assertEquals(ofSeconds(20), timeouts.deadline("upload", 5000));
+    }
+
+    @Test
+    public void recordsLatenciesPerUnitOfSize() {
+        for (var i = 0; i < 3; i++) timeouts.record("upload", 4000, ofSeconds(8));
+
+        assertEquals(ofSeconds(4), timeouts.deadline("upload", 0));
+    }
+
+    @Test
+    public void keepsTheDeadlineWithinTheFloorAndTheCeiling() {
+        record(ofMillis(100), 3);
+        assertEquals(ofSeconds(1), timeouts.deadline("upload", 0));
+
+        record(ofSeconds(50), 10);
+        assertEquals(ofSeconds(60), timeouts.deadline("upload", 0));
+        assertEquals(ofSeconds(60), timeouts.ceiling("upload"));
+    }
+
+    @Test
+    public void failsACallPastItsDeadline() {
+        var call = timeouts.within("call", 0, CompletableFuture::new);
+
+        var error = assertThrows(ExecutionException.class, () -> call.toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+    }
+
+    @Test
+    public void rejectsUnknownOperations() {
+        assertThrows(IllegalArgumentException.class, () -> timeouts.deadline("unknown", 0));
+    }
+}